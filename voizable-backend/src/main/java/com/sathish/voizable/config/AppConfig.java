@@ -1,16 +1,38 @@
 package com.sathish.voizable.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 public class AppConfig {
 
+    @Value("${ai.service.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    // Threads that complete async responses and pull streamed request bodies from their source
+    // (ignored with virtual threads, which get one per task)
+    @Value("${ai.service.http.executor-threads:8}")
+    private int executorThreads;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService aiHttpExecutor(WorkerThreads workerThreads) {
+        return workerThreads.newFixedExecutor("ai-http-", executorThreads);
+    }
+
+    // One pooled, keep-alive HTTP/1.1 client shared by every call to the AI service. How long idle
+    // connections stay pooled is a JVM-wide setting, jdk.httpclient.keepalive.timeout.
     @Bean
-    public RestTemplate restTemplate() {
-        // This creates a singleton RestTemplate bean that can be injected
-        // anywhere in the application to make HTTP requests.
-        return new RestTemplate();
+    public HttpClient aiHttpClient(ExecutorService aiHttpExecutor) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(aiHttpExecutor)
+                .build();
     }
 }
@@ -0,0 +1,59 @@
+package com.sathish.voizable.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Named FFmpeg encoding profiles for the subtitle burn step, bound from ffmpeg.encoding.* in
+// application.properties. Clients pick a profile per job; the scheduler decides the thread count.
+@Configuration
+@ConfigurationProperties(prefix = "ffmpeg.encoding")
+public class EncodingProperties {
+
+    public static class Profile {
+        private String videoCodec = "libx264";
+        private String preset = "medium";
+        private int crf = 23;
+        // Upper bound on FFmpeg threads for one encode; 0 means no cap beyond the scheduler's share
+        private int threads = 0;
+        private boolean faststart = true;
+
+        // Getters and Setters
+        public String getVideoCodec() { return videoCodec; }
+        public void setVideoCodec(String videoCodec) { this.videoCodec = videoCodec; }
+        public String getPreset() { return preset; }
+        public void setPreset(String preset) { this.preset = preset; }
+        public int getCrf() { return crf; }
+        public void setCrf(int crf) { this.crf = crf; }
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+        public boolean isFaststart() { return faststart; }
+        public void setFaststart(boolean faststart) { this.faststart = faststart; }
+    }
+
+    private String defaultProfile = "balanced";
+
+    // Threads shared by all concurrent encodes; 0 means one per available processor
+    private int totalThreads = 0;
+
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    public Optional<Profile> findProfile(String name) {
+        return Optional.ofNullable(profiles.get(name != null ? name : defaultProfile));
+    }
+
+    public int resolveTotalThreads() {
+        return totalThreads > 0 ? totalThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    // Getters and Setters
+    public String getDefaultProfile() { return defaultProfile; }
+    public void setDefaultProfile(String defaultProfile) { this.defaultProfile = defaultProfile; }
+    public int getTotalThreads() { return totalThreads; }
+    public void setTotalThreads(int totalThreads) { this.totalThreads = totalThreads; }
+    public Map<String, Profile> getProfiles() { return profiles; }
+    public void setProfiles(Map<String, Profile> profiles) { this.profiles = profiles; }
+}
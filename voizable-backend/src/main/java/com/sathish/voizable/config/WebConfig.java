@@ -14,9 +14,12 @@ public class WebConfig implements WebMvcConfigurer {
                 // Allow requests from your React application's origin
                 .allowedOrigins("http://localhost:3000")
                 // Specify the allowed HTTP methods
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                .allowedMethods("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                 // Allow all headers in the request
                 .allowedHeaders("*")
+                // Let browser upload clients read the resumable upload headers
+                .exposedHeaders("Location", "Tus-Resumable", "Tus-Version", "Tus-Extension", "Tus-Max-Size",
+                        "Upload-Offset", "Upload-Length", "Upload-Ranges")
                 // Allow credentials (like cookies), if needed in the future
                 .allowCredentials(true);
     }
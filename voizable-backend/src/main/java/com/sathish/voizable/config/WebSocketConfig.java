@@ -0,0 +1,44 @@
+package com.sathish.voizable.config;
+
+import com.sathish.voizable.controller.LiveCaptionWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private LiveCaptionWebSocketHandler liveCaptionWebSocketHandler;
+
+    @Value("${cors.allowed-origins:http://localhost:3000}")
+    private String[] allowedOrigins;
+
+    @Value("${live.max-frame-bytes:65536}")
+    private int maxFrameBytes;
+
+    @Value("${live.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(liveCaptionWebSocketHandler, "/api/live/captions")
+                .setAllowedOrigins(allowedOrigins);
+    }
+
+    // Limits for every WebSocket session Tomcat accepts
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxFrameBytes);
+        container.setMaxTextMessageBufferSize(8192);
+        container.setMaxSessionIdleTimeout(idleTimeoutSeconds * 1000);
+        return container;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sathish.voizable.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Creates the threads the pipelines run on. With spring.threads.virtual.enabled (the same switch that
+// moves Tomcat and Spring MVC's async executor onto virtual threads) every worker, HTTP client callback
+// and FFmpeg stream reader is a virtual thread, so jobs blocked on FFmpeg or the AI service do not hold
+// an OS thread each. Concurrency is then capped by semaphores (see BoundedExecutor), not by pool sizes.
+// On a JVM without virtual threads the switch falls back to platform threads.
+@Component
+public class WorkerThreads {
+
+    private static final Logger logger = Logger.getLogger(WorkerThreads.class.getName());
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualRequested;
+
+    private boolean virtual;
+
+    @PostConstruct
+    void init() {
+        if (!virtualRequested) {
+            return;
+        }
+        try {
+            new VirtualThreadTaskExecutor();
+            virtual = true;
+            logger.info("Pipeline workers run on virtual threads");
+        } catch (UnsupportedOperationException e) {
+            logger.warning("spring.threads.virtual.enabled is set but this JVM has no virtual threads "
+                    + "(Java 21+ required); using platform threads");
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // Daemon platform threads, or virtual threads, named prefix + counter.
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(namePrefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // A thread per task with no limit of its own. Platform threads are kept for a minute for reuse;
+    // virtual threads are never pooled.
+    public ExecutorService newUnboundedExecutor(String namePrefix) {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, virtual ? 0L : 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory(namePrefix));
+    }
+
+    // For short, non-blocking tasks: a fixed platform pool, or a virtual thread per task.
+    public ExecutorService newFixedExecutor(String namePrefix, int threads) {
+        return virtual ? newUnboundedExecutor(namePrefix) : Executors.newFixedThreadPool(threads, threadFactory(namePrefix));
+    }
+}
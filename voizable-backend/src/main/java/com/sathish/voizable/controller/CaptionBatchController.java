@@ -0,0 +1,261 @@
+package com.sathish.voizable.controller;
+
+import com.sathish.voizable.config.EncodingProperties;
+import com.sathish.voizable.dto.CaptionBatchRequestDTO;
+import com.sathish.voizable.exception.UploadConflictException;
+import com.sathish.voizable.model.CaptionBatch;
+import com.sathish.voizable.model.CaptionJob;
+import com.sathish.voizable.service.CaptionBatchService;
+import com.sathish.voizable.service.OutputArtifactManager;
+import com.sathish.voizable.service.ResumableUploadStore;
+import com.sathish.voizable.service.StagedUpload;
+import com.sathish.voizable.service.StagingStore;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Batch captioning: many videos submitted in one request, scheduled through the shared work queue
+// (see CaptionBatchService), tracked with one status endpoint and downloaded as one zip.
+@RestController
+@RequestMapping("/api/captions/batches")
+public class CaptionBatchController {
+
+    private static final Logger logger = Logger.getLogger(CaptionBatchController.class.getName());
+
+    @Autowired
+    private CaptionBatchService captionBatchService;
+
+    @Autowired
+    private StagingStore stagingStore;
+
+    @Autowired
+    private ResumableUploadStore resumableUploadStore;
+
+    @Autowired
+    private EncodingProperties encodingProperties;
+
+    @Autowired
+    private OutputArtifactManager outputArtifactManager;
+
+    @Value("${uploads.dir}")
+    private String uploadsDir;
+
+    // Small batches in one request, bound by spring.servlet.multipart.max-request-size. Larger ones
+    // are uploaded one video at a time through /api/uploads and submitted as a manifest below.
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> createBatch(@RequestParam("files") List<MultipartFile> files,
+                                         @RequestParam(value = "fontStyle", defaultValue = "poppins") String fontStyle,
+                                         @RequestParam(value = "profile", required = false) String profile,
+                                         @RequestParam(value = "outputMode", defaultValue = "burn") String outputMode,
+                                         @RequestParam(value = "sidecarVtt", defaultValue = "false") boolean sidecarVtt) {
+        ResponseEntity<?> invalid = validate(files.size(), profile, outputMode);
+        if (invalid != null) {
+            return invalid;
+        }
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "File is empty: " + file.getOriginalFilename()));
+            }
+        }
+        List<StagedUpload> staged = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                staged.add(stagingStore.stage(file));
+            }
+        } catch (IOException | RuntimeException e) {
+            staged.forEach(StagedUpload::release);
+            logger.log(Level.SEVERE, "Failed to stage batch", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to stage batch: " + e.getMessage()));
+        }
+        return queue(staged, fontStyle, profile, outputMode, sidecarVtt, () -> staged.forEach(StagedUpload::release));
+    }
+
+    // Batches finished resumable uploads, listed by id in a JSON manifest.
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createBatchFromUploads(@RequestBody CaptionBatchRequestDTO request) {
+        List<String> uploadIds = request.getUploadIds() != null ? request.getUploadIds() : List.of();
+        String outputMode = request.getOutputMode() != null ? request.getOutputMode() : "burn";
+        ResponseEntity<?> invalid = validate(uploadIds.size(), request.getProfile(), outputMode);
+        if (invalid != null) {
+            return invalid;
+        }
+        if (new HashSet<>(uploadIds).size() < uploadIds.size()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Each upload can only be in a batch once."));
+        }
+        List<ResumableUploadStore.Upload> uploads = new ArrayList<>(uploadIds.size());
+        for (String uploadId : uploadIds) {
+            ResumableUploadStore.Upload upload = resumableUploadStore.find(uploadId).orElse(null);
+            if (upload == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown upload: " + uploadId));
+            }
+            if (!upload.isComplete()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Upload is incomplete: " + uploadId,
+                        "offset", upload.getOffset(), "length", upload.getLength()));
+            }
+            uploads.add(upload);
+        }
+        List<StagedUpload> staged = new ArrayList<>(uploads.size());
+        // On failure the uploads go back to the resumable area, so the client can retry the manifest
+        Runnable reopen = () -> {
+            for (int i = 0; i < staged.size(); i++) {
+                resumableUploadStore.reopen(uploads.get(i), staged.get(i));
+            }
+        };
+        try {
+            for (ResumableUploadStore.Upload upload : uploads) {
+                staged.add(resumableUploadStore.complete(upload));
+            }
+        } catch (UploadConflictException e) {
+            reopen.run();
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            reopen.run();
+            logger.log(Level.SEVERE, "Failed to stage batch from resumable uploads", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to stage batch: " + e.getMessage()));
+        }
+        String fontStyle = request.getFontStyle() != null ? request.getFontStyle() : "poppins";
+        return queue(staged, fontStyle, request.getProfile(), outputMode, request.isSidecarVtt(), reopen);
+    }
+
+    @GetMapping("/{batchId}")
+    public ResponseEntity<?> getBatchStatus(@PathVariable String batchId) {
+        CaptionBatch batch = captionBatchService.find(batchId).orElse(null);
+        if (batch == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(captionBatchService.describeBatch(batch, captionBatchService.getItems(batchId)));
+    }
+
+    // Streams every completed item's outputs as one zip, numbered in submission order. Failed and
+    // evicted items are left out; the status endpoint lists them.
+    @GetMapping("/{batchId}/download")
+    public ResponseEntity<?> downloadBatch(@PathVariable String batchId, HttpServletResponse response) throws IOException {
+        if (captionBatchService.find(batchId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<CaptionJob> items = captionBatchService.getItems(batchId);
+        if (!CaptionBatchService.isFinished(items)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "The batch is still running.",
+                    "statusUrl", "/api/captions/batches/" + batchId));
+        }
+        Map<String, Path> entries = new LinkedHashMap<>();
+        boolean evicted = false;
+        for (CaptionJob item : items) {
+            if (item.getStatus() != CaptionJob.Status.COMPLETED) {
+                continue;
+            }
+            if (item.getOutputsEvictedAt() != null) {
+                evicted = true;
+                continue;
+            }
+            String baseName = String.format("%03d-%s", item.getBatchPosition() + 1, baseName(item.getOriginalFileName()));
+            addEntry(entries, baseName + ".mp4", item.getCaptionedVideoPath());
+            addEntry(entries, baseName + ".vtt", item.getSubtitlePath());
+        }
+        if (entries.isEmpty()) {
+            return evicted
+                    ? ResponseEntity.status(HttpStatus.GONE).body(Map.of("error",
+                            "The outputs of this batch were deleted to free disk space. Submit the videos again to regenerate them."))
+                    : ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No item in this batch completed."));
+        }
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("captions-" + batchId + ".zip").build().toString());
+        try (ZipOutputStream zip = new ZipOutputStream(response.getOutputStream())) {
+            // MP4 does not compress further; storing saves the CPU
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            for (Map.Entry<String, Path> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                Files.copy(entry.getValue(), zip);
+                zip.closeEntry();
+                outputArtifactManager.touch(entry.getValue().getFileName().toString());
+            }
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> validate(int itemCount, String profile, String outputMode) {
+        if (itemCount == 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "A batch needs at least one item."));
+        }
+        if (itemCount > captionBatchService.getMaxItems()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "A batch can have at most "
+                    + captionBatchService.getMaxItems() + " items."));
+        }
+        try {
+            CaptionJob.OutputMode.valueOf(outputMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown output mode: " + outputMode + ". Use 'burn' or 'soft'."));
+        }
+        String profileName = profile != null ? profile : encodingProperties.getDefaultProfile();
+        if (encodingProperties.findProfile(profileName).isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown encoding profile: " + profileName
+                    + ". Available profiles: " + encodingProperties.getProfiles().keySet()));
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> queue(List<StagedUpload> staged, String fontStyle, String profile,
+                                    String outputMode, boolean sidecarVtt, Runnable undoStaging) {
+        try {
+            CaptionBatch batch = captionBatchService.createBatch(staged, fontStyle,
+                    profile != null ? profile : encodingProperties.getDefaultProfile(),
+                    CaptionJob.OutputMode.valueOf(outputMode.toUpperCase()), sidecarVtt);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("batchId", batch.getId());
+            body.put("items", batch.getItemCount());
+            body.put("statusUrl", "/api/captions/batches/" + batch.getId());
+            return ResponseEntity.accepted().body(body);
+        } catch (RuntimeException e) {
+            undoStaging.run();
+            logger.log(Level.SEVERE, "Failed to queue batch", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to queue batch: " + e.getMessage()));
+        }
+    }
+
+    private void addEntry(Map<String, Path> entries, String name, String outputFileName) {
+        if (outputFileName == null) {
+            return;
+        }
+        Path path = Paths.get(uploadsDir, outputFileName);
+        if (Files.isRegularFile(path)) {
+            entries.put(name, path);
+        }
+    }
+
+    private static String baseName(String originalFileName) {
+        if (originalFileName == null || originalFileName.isBlank()) {
+            return "video";
+        }
+        String name = new File(originalFileName.replace('\\', '/')).getName();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name).replaceAll("[^A-Za-z0-9._ -]", "_");
+    }
+}
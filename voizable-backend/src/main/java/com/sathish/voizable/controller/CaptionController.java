@@ -1,48 +1,158 @@
 package com.sathish.voizable.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sathish.voizable.config.EncodingProperties;
+import com.sathish.voizable.exception.JobRejectedException;
+import com.sathish.voizable.exception.UploadConflictException;
 import com.sathish.voizable.model.CaptionJob;
-import com.sathish.voizable.repository.CaptionJobRepository;
+import com.sathish.voizable.service.CaptionJobScheduler;
+import com.sathish.voizable.service.CaptionJobStore;
 import com.sathish.voizable.service.CaptionService;
+import com.sathish.voizable.service.JobEventBus;
+import com.sathish.voizable.service.MediaFileStreamer;
+import com.sathish.voizable.service.OutputArtifactManager;
+import com.sathish.voizable.service.ResumableUploadStore;
+import com.sathish.voizable.service.StagedUpload;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @RestController
 @RequestMapping("/api/captions")
 public class CaptionController {
 
+    private static final Logger logger = Logger.getLogger(CaptionController.class.getName());
+
     @Autowired
     private CaptionService captionService;
 
     @Autowired
-    private CaptionJobRepository captionJobRepository;
+    private CaptionJobStore captionJobStore;
+
+    @Autowired
+    private CaptionJobScheduler captionJobScheduler;
+
+    @Autowired
+    private EncodingProperties encodingProperties;
+
+    @Autowired
+    private JobEventBus jobEventBus;
+
+    @Autowired
+    private MediaFileStreamer mediaFileStreamer;
+
+    @Autowired
+    private ResumableUploadStore resumableUploadStore;
+
+    @Autowired
+    private OutputArtifactManager outputArtifactManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @Value("${uploads.dir}")
     private String uploadsDir;
 
+    private static final MediaType VIDEO_MP4 = MediaType.parseMediaType("video/mp4");
+    private static final MediaType TEXT_VTT = MediaType.parseMediaType("text/vtt");
+
     @PostMapping("/generate")
     public ResponseEntity<?> generateCaptionedVideo(@RequestParam("file") MultipartFile file,
-                                                    @RequestParam("fontStyle") String fontStyle) {
+                                                    @RequestParam(value = "fontStyle", defaultValue = "poppins") String fontStyle,
+                                                    @RequestParam(value = "profile", required = false) String profile,
+                                                    @RequestParam(value = "outputMode", defaultValue = "burn") String outputMode,
+                                                    @RequestParam(value = "sidecarVtt", defaultValue = "false") boolean sidecarVtt) {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "File is empty."));
         }
+        return startJob(file.getSize(), profile, outputMode, (profileName, mode, admission) -> {
+            CaptionJob job = captionService.startCaptioningJob(file, fontStyle, profileName, mode, sidecarVtt);
+            captionService.generateCaptionedVideo(file, job.getId(), admission);
+            return job;
+        });
+    }
+
+    // Captions a finished resumable upload (see UploadController) instead of a multipart file.
+    @PostMapping("/generate/{uploadId}")
+    public ResponseEntity<?> generateFromUpload(@PathVariable String uploadId,
+                                                @RequestParam(value = "fontStyle", defaultValue = "poppins") String fontStyle,
+                                                @RequestParam(value = "profile", required = false) String profile,
+                                                @RequestParam(value = "outputMode", defaultValue = "burn") String outputMode,
+                                                @RequestParam(value = "sidecarVtt", defaultValue = "false") boolean sidecarVtt) {
+        ResumableUploadStore.Upload upload = resumableUploadStore.find(uploadId).orElse(null);
+        if (upload == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!upload.isComplete()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Upload is incomplete.",
+                    "offset", upload.getOffset(), "length", upload.getLength()));
+        }
+        return startJob(upload.getLength(), profile, outputMode, (profileName, mode, admission) -> {
+            StagedUpload staged = resumableUploadStore.complete(upload);
+            CaptionJob job;
+            try {
+                job = captionService.startCaptioningJob(staged.getOriginalFileName(), fontStyle, profileName, mode, sidecarVtt);
+            } catch (RuntimeException e) {
+                staged.release();
+                throw e;
+            }
+            captionService.generateCaptionedVideo(staged, job.getId(), admission);
+            return job;
+        });
+    }
+
+    private interface JobLauncher {
+        CaptionJob launch(String profileName, CaptionJob.OutputMode mode, CaptionJobScheduler.Admission admission) throws Exception;
+    }
+
+    // Validates the job options, takes an admission slot and hands both to the launcher.
+    private ResponseEntity<?> startJob(long mediaSizeBytes, String profile, String outputMode, JobLauncher launcher) {
+        CaptionJob.OutputMode mode;
+        try {
+            mode = CaptionJob.OutputMode.valueOf(outputMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown output mode: " + outputMode + ". Use 'burn' or 'soft'."));
+        }
+        String profileName = profile != null ? profile : encodingProperties.getDefaultProfile();
+        if (encodingProperties.findProfile(profileName).isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown encoding profile: " + profileName
+                    + ". Available profiles: " + encodingProperties.getProfiles().keySet()));
+        }
+        CaptionJobScheduler.Admission admission;
         try {
-            CaptionJob job = captionService.startCaptioningJob(file);
-            captionService.generateCaptionedVideo(file, fontStyle, job.getId());
+            admission = captionJobScheduler.admit(mediaSizeBytes);
+        } catch (JobRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", e.getMessage(), "retryAfterSeconds", e.getRetryAfterSeconds()));
+        }
+        try {
+            CaptionJob job = launcher.launch(profileName, mode, admission);
             return ResponseEntity.accepted().body(Map.of("jobId", job.getId()));
+        } catch (UploadConflictException e) {
+            captionJobScheduler.release(admission);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
-            e.printStackTrace();
+            captionJobScheduler.release(admission);
+            logger.log(Level.SEVERE, "Failed to start captioning job", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to start captioning job: " + e.getMessage()));
         }
@@ -50,48 +160,104 @@ public class CaptionController {
 
     @GetMapping("/status/{jobId}")
     public ResponseEntity<?> getJobStatus(@PathVariable String jobId) {
-        return captionJobRepository.findById(jobId)
-                .map(job -> {
-                    if (job.getStatus() == CaptionJob.Status.COMPLETED) {
-                        String previewUrl = "/api/captions/preview/" + job.getCaptionedVideoPath();
-                        String downloadUrl = "/api/captions/download/" + job.getId();
-                        return ResponseEntity.ok(Map.of(
-                                "status", job.getStatus(),
-                                "previewUrl", previewUrl,
-                                "downloadUrl", downloadUrl
-                        ));
-                    }
-                    return ResponseEntity.ok(Map.of("status", job.getStatus()));
-                })
+        return captionJobStore.find(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(captionService.describeJob(job)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Pushes status and progress updates as they happen. Clients that reconnect send Last-Event-ID
+    // and receive only what they missed; /status remains available as a polling fallback.
+    @GetMapping(value = "/events/{jobId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable String jobId,
+                                                      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long lastSeen = null;
+        if (lastEventId != null) {
+            try {
+                lastSeen = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // Unknown ids from another server instance just mean a full replay
+            }
+        }
+        if (jobEventBus.hasChannel(jobId)) {
+            return ResponseEntity.ok(jobEventBus.subscribe(jobId, lastSeen, null, false));
+        }
+        // The bus has no record of this job, e.g. after a restart, so seed it from the database once
+        CaptionJob job = captionJobStore.find(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean terminal = job.getStatus() == CaptionJob.Status.COMPLETED || job.getStatus() == CaptionJob.Status.FAILED;
+        return ResponseEntity.ok(jobEventBus.subscribe(jobId, lastSeen, () -> captionService.describeJob(job), terminal));
+    }
+
     @GetMapping("/preview/{filename}")
-    public ResponseEntity<Resource> streamVideo(@PathVariable String filename) {
+    public void streamVideo(@PathVariable String filename, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
         File videoFile = Paths.get(uploadsDir, filename).toFile();
         if (!videoFile.exists()) {
-            return ResponseEntity.notFound().build();
+            sendMissingOutput(filename, null, response);
+            return;
         }
-        Resource fileSystemResource = new FileSystemResource(videoFile);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("video/mp4"))
-                .body(fileSystemResource);
+        outputArtifactManager.touch(filename);
+        mediaFileStreamer.stream(videoFile, VIDEO_MP4, null, isImmutableOutput(filename), request, response);
     }
 
     @GetMapping("/download/{jobId}")
-    public ResponseEntity<Resource> downloadVideo(@PathVariable String jobId) {
-        CaptionJob job = captionJobRepository.findById(jobId).orElse(null);
+    public void downloadVideo(@PathVariable String jobId, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        CaptionJob job = captionJobStore.find(jobId).orElse(null);
         if (job == null || job.getStatus() != CaptionJob.Status.COMPLETED) {
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
         File videoFile = Paths.get(uploadsDir, job.getCaptionedVideoPath()).toFile();
-        if (!videoFile.exists()) {
-            return ResponseEntity.notFound().build();
+        if (job.getOutputsEvictedAt() != null || !videoFile.exists()) {
+            sendMissingOutput(job.getCaptionedVideoPath(), job, response);
+            return;
+        }
+        outputArtifactManager.touch(job.getCaptionedVideoPath());
+        String contentDisposition = ContentDisposition.attachment()
+                .filename(job.getOriginalFileName(), StandardCharsets.UTF_8).build().toString();
+        mediaFileStreamer.stream(videoFile, VIDEO_MP4, contentDisposition,
+                isImmutableOutput(job.getCaptionedVideoPath()), request, response);
+    }
+
+    @GetMapping("/subtitles/{jobId}")
+    public void downloadSubtitles(@PathVariable String jobId, HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        CaptionJob job = captionJobStore.find(jobId).orElse(null);
+        if (job == null || job.getStatus() != CaptionJob.Status.COMPLETED || job.getSubtitlePath() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        File subtitleFile = Paths.get(uploadsDir, job.getSubtitlePath()).toFile();
+        if (job.getOutputsEvictedAt() != null || !subtitleFile.exists()) {
+            sendMissingOutput(job.getSubtitlePath(), job, response);
+            return;
         }
-        Resource fileSystemResource = new FileSystemResource(videoFile);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("video/mp4"))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getOriginalFileName() + "\"")
-                .body(fileSystemResource);
+        outputArtifactManager.touch(job.getSubtitlePath());
+        mediaFileStreamer.stream(subtitleFile, TEXT_VTT, null, isImmutableOutput(job.getSubtitlePath()), request, response);
+    }
+
+    // 410 Gone for an output deleted to free disk space, so clients know to resubmit the job rather
+    // than retry. The job record may not know yet if another node evicted it, so the artifact decides.
+    private void sendMissingOutput(String fileName, CaptionJob job, HttpServletResponse response) throws IOException {
+        if ((job == null || job.getOutputsEvictedAt() == null) && !outputArtifactManager.isEvicted(fileName)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "This output was deleted to free disk space. Submit the video again to regenerate it.");
+        if (job != null && job.getOutputsEvictedAt() != null) {
+            body.put("evictedAt", job.getOutputsEvictedAt().toString());
+        }
+        response.setStatus(HttpServletResponse.SC_GONE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    // Captioned outputs are written once under a random name and never modified
+    private boolean isImmutableOutput(String filename) {
+        return filename.startsWith("captioned_");
     }
 }
@@ -0,0 +1,134 @@
+package com.sathish.voizable.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sathish.voizable.service.LiveCaptionService;
+import com.sathish.voizable.service.LiveCaptionSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Live captioning at ws://host/api/live/captions?format=pcm|container.
+//
+// The client sends binary frames of audio: with format=pcm (the default), 16 kHz mono signed 16-bit
+// little-endian samples; with format=container, the chunks MediaRecorder produces (WebM or Ogg Opus).
+// It may send {"type":"stop"} to have the remaining audio transcribed before the server closes.
+//
+// The server sends JSON text frames:
+//   {"type":"ready","sessionId":...}
+//   {"type":"partial","cues":[{"cueId","startMs","endMs","text"}...]}  replaces the current partials
+//   {"type":"final","cues":[...]}                                      cues that will not change again
+//   {"type":"error","message":...}
+//   {"type":"end","cues":n}
+@Component
+public class LiveCaptionWebSocketHandler extends AbstractWebSocketHandler {
+
+    private static final Logger logger = Logger.getLogger(LiveCaptionWebSocketHandler.class.getName());
+    private static final String HANDLE_ATTRIBUTE = "liveCaptionHandle";
+
+    @Autowired
+    private LiveCaptionService liveCaptionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Outgoing events a slow client may have queued before it is disconnected
+    @Value("${live.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${live.send-buffer-bytes:65536}")
+    private int sendBufferBytes;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String format = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("format");
+        LiveCaptionService.InputFormat inputFormat;
+        if (format == null || format.equalsIgnoreCase("pcm")) {
+            inputFormat = LiveCaptionService.InputFormat.PCM;
+        } else if (format.equalsIgnoreCase("container") || format.equalsIgnoreCase("webm") || format.equalsIgnoreCase("ogg")) {
+            inputFormat = LiveCaptionService.InputFormat.CONTAINER;
+        } else {
+            session.close(CloseStatus.BAD_DATA.withReason("format must be pcm or container"));
+            return;
+        }
+
+        // Events are sent from AI client threads as well as this one
+        WebSocketSession outbound = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferBytes);
+        LiveCaptionService.Handle handle = liveCaptionService.open(inputFormat, new LiveCaptionSession.EventSink() {
+            @Override
+            public void send(Map<String, Object> event) {
+                try {
+                    outbound.sendMessage(new TextMessage(objectMapper.writeValueAsString(event)));
+                } catch (IOException | RuntimeException e) {
+                    logger.fine("Could not send live caption event: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void close() {
+                try {
+                    outbound.close(CloseStatus.NORMAL);
+                } catch (IOException e) {
+                    logger.fine("Could not close live caption session: " + e.getMessage());
+                }
+            }
+        }).orElse(null);
+        if (handle == null) {
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Too many live caption sessions"));
+            return;
+        }
+        session.getAttributes().put(HANDLE_ATTRIBUTE, handle);
+        Map<String, Object> ready = new LinkedHashMap<>();
+        ready.put("type", "ready");
+        ready.put("sessionId", handle.getSessionId());
+        outbound.sendMessage(new TextMessage(objectMapper.writeValueAsString(ready)));
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        LiveCaptionService.Handle handle = (LiveCaptionService.Handle) session.getAttributes().get(HANDLE_ATTRIBUTE);
+        if (handle == null) {
+            return;
+        }
+        ByteBuffer payload = message.getPayload();
+        byte[] data = new byte[payload.remaining()];
+        payload.get(data);
+        if (!handle.accept(data)) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Audio is arriving faster than it can be decoded"));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        LiveCaptionService.Handle handle = (LiveCaptionService.Handle) session.getAttributes().get(HANDLE_ATTRIBUTE);
+        if (handle == null) {
+            return;
+        }
+        JsonNode command = objectMapper.readTree(message.getPayload());
+        if ("stop".equals(command.path("type").asText())) {
+            handle.stop();
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        LiveCaptionService.Handle handle = (LiveCaptionService.Handle) session.getAttributes().remove(HANDLE_ATTRIBUTE);
+        if (handle != null) {
+            liveCaptionService.close(handle);
+        }
+    }
+}
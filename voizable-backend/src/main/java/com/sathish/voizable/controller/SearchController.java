@@ -0,0 +1,72 @@
+package com.sathish.voizable.controller;
+
+import com.sathish.voizable.service.TranscriptSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Full-text search across all transcriptions. Queries use simple syntax: words must all match,
+// "quoted phrases" match in order, | means OR, - excludes a word and a trailing * matches a prefix.
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final Logger logger = Logger.getLogger(SearchController.class.getName());
+
+    @Autowired
+    private TranscriptSearchIndex transcriptSearchIndex;
+
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(defaultValue = "20") int limit,
+                                    @RequestParam(defaultValue = "5") int hitsPerTranscription) {
+        if (!transcriptSearchIndex.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Search is disabled."));
+        }
+        if (query.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Query must not be empty."));
+        }
+        if (limit < 1 || limit > 100 || hitsPerTranscription < 1 || hitsPerTranscription > 50) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "limit must be between 1 and 100 and hitsPerTranscription between 1 and 50."));
+        }
+        try {
+            List<TranscriptSearchIndex.SearchResult> results = transcriptSearchIndex.search(query, limit, hitsPerTranscription);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("query", query);
+            body.put("results", results);
+            return ResponseEntity.ok(body);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Search failed for query " + query, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Search failed: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<?> status() {
+        return ResponseEntity.ok(Map.of(
+                "enabled", transcriptSearchIndex.isEnabled(),
+                "indexedCues", transcriptSearchIndex.getIndexedCueCount(),
+                "rebuilding", transcriptSearchIndex.isRebuilding()));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> rebuild() {
+        if (!transcriptSearchIndex.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Search is disabled."));
+        }
+        if (!transcriptSearchIndex.requestRebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "A rebuild is already running."));
+        }
+        return ResponseEntity.accepted().body(Map.of("rebuilding", true));
+    }
+}
@@ -1,36 +1,208 @@
 package com.sathish.voizable.controller;
 
+import com.sathish.voizable.dto.SubtitleCue;
+import com.sathish.voizable.dto.TranscriptionSummary;
 import com.sathish.voizable.model.Transcription;
+import com.sathish.voizable.repository.TranscriptionRepository;
+import com.sathish.voizable.service.ResumableUploadStore;
+import com.sathish.voizable.service.MediaFileStreamer;
+import com.sathish.voizable.service.StagedUpload;
+import com.sathish.voizable.service.SubtitleExportService;
+import com.sathish.voizable.service.TranscriptSegmentService;
 import com.sathish.voizable.service.TranscriptionService;
+import com.sathish.voizable.util.SegmentIndex;
+import com.sathish.voizable.util.SubtitleFormat;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @RestController
 @RequestMapping("/api/audio") // Changed from /api/v1/transcriptions
 public class TranscriptionController {
 
+    private static final Logger logger = Logger.getLogger(TranscriptionController.class.getName());
+
     @Autowired
     private TranscriptionService transcriptionService;
 
+    @Autowired
+    private ResumableUploadStore resumableUploadStore;
+
+    @Autowired
+    private TranscriptionRepository transcriptionRepository;
+
+    @Autowired
+    private TranscriptSegmentService transcriptSegmentService;
+
+    @Autowired
+    private SubtitleExportService subtitleExportService;
+
+    @Autowired
+    private MediaFileStreamer mediaFileStreamer;
+
+    @Value("${transcription.segments.max-page-size:500}")
+    private int maxSegmentPageSize;
+
     @PostMapping("/transcribe") // Added /transcribe mapping
-    public ResponseEntity<?> createTranscription(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<?>> createTranscription(@RequestParam("file") MultipartFile file) {
         if (file.isEmpty()) {
-            return ResponseEntity.badRequest().body(Map.of("error", "File is empty. Please upload a valid file."));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error", "File is empty. Please upload a valid file.")));
         }
 
+        // The request thread is released while the AI service transcribes
+        return toResponse(transcriptionService.transcribeAndSaveAsync(file));
+    }
+
+    // Transcribes a finished resumable upload (see UploadController).
+    @PostMapping("/transcribe/{uploadId}")
+    public CompletableFuture<ResponseEntity<?>> transcribeUpload(@PathVariable String uploadId) {
+        ResumableUploadStore.Upload upload = resumableUploadStore.find(uploadId).orElse(null);
+        if (upload == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        StagedUpload staged;
         try {
-            Transcription savedTranscription = transcriptionService.transcribeAndSave(file);
-            return ResponseEntity.status(HttpStatus.CREATED).body(savedTranscription);
-        } catch (Exception e) {
-            // Log the exception for debugging
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "An error occurred during transcription: " + e.getMessage()));
+            staged = resumableUploadStore.complete(upload);
+        } catch (IllegalStateException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage(), "offset", upload.getOffset())));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not stage resumable upload " + upload.getId(), e);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Could not stage upload: " + e.getMessage())));
+        }
+        return toResponse(transcriptionService.transcribeAndSaveAsync(staged));
+    }
+
+    // Newest first, metadata only; fetch a single transcription for its text and SRT.
+    @GetMapping("/transcriptions")
+    public ResponseEntity<?> listTranscriptions(@RequestParam(defaultValue = "0") int page,
+                                                @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 200) {
+            return ResponseEntity.badRequest().body(Map.of("error", "page must be >= 0 and size between 1 and 200."));
         }
+        Page<TranscriptionSummary> summaries = transcriptionRepository.findAllBy(
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("items", summaries.getContent());
+        body.put("page", page);
+        body.put("size", size);
+        body.put("totalElements", summaries.getTotalElements());
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/transcriptions/{id}")
+    public ResponseEntity<?> getTranscription(@PathVariable Long id) {
+        return transcriptionRepository.findWithContentById(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Cues in order, a page at a time.
+    @GetMapping("/transcriptions/{id}/segments")
+    public ResponseEntity<?> listSegments(@PathVariable Long id,
+                                          @RequestParam(defaultValue = "0") int offset,
+                                          @RequestParam(defaultValue = "100") int limit) {
+        if (offset < 0 || limit < 1 || limit > maxSegmentPageSize) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "offset must be >= 0 and limit between 1 and " + maxSegmentPageSize + "."));
+        }
+        return transcriptSegmentService.find(id)
+                .<ResponseEntity<?>>map(index -> ResponseEntity.ok(segmentPage(id, index, index.page(offset, limit), index.size(), offset)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Cues overlapping [fromMs, toMs), paged like the full listing.
+    @GetMapping("/transcriptions/{id}/segments/range")
+    public ResponseEntity<?> segmentsInRange(@PathVariable Long id,
+                                             @RequestParam long fromMs,
+                                             @RequestParam long toMs,
+                                             @RequestParam(defaultValue = "0") int offset,
+                                             @RequestParam(defaultValue = "100") int limit) {
+        if (fromMs < 0 || toMs <= fromMs) {
+            return ResponseEntity.badRequest().body(Map.of("error", "fromMs must be >= 0 and less than toMs."));
+        }
+        if (offset < 0 || limit < 1 || limit > maxSegmentPageSize) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "offset must be >= 0 and limit between 1 and " + maxSegmentPageSize + "."));
+        }
+        return transcriptSegmentService.find(id)
+                .<ResponseEntity<?>>map(index -> {
+                    List<SubtitleCue> matches = index.range(fromMs, toMs);
+                    int from = Math.min(offset, matches.size());
+                    Map<String, Object> body = segmentPage(id, index,
+                            matches.subList(from, Math.min(matches.size(), from + limit)), matches.size(), offset);
+                    body.put("fromMs", fromMs);
+                    body.put("toMs", toMs);
+                    return ResponseEntity.ok(body);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Subtitle file in srt, vtt, ass or ttml, rendered once and then served from the export cache
+    // with byte ranges and conditional GET.
+    @GetMapping("/transcriptions/{id}/export/{format}")
+    public void exportSubtitles(@PathVariable Long id, @PathVariable String format,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        SubtitleFormat subtitleFormat = SubtitleFormat.fromExtension(format).orElse(null);
+        if (subtitleFormat == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Supported formats are srt, vtt, ass and ttml.");
+            return;
+        }
+        String contentDisposition = ContentDisposition.attachment()
+                .filename("transcription-" + id + "." + subtitleFormat.getExtension(), StandardCharsets.UTF_8)
+                .build().toString();
+        MediaType contentType = new MediaType(MediaType.parseMediaType(subtitleFormat.getMediaType()), StandardCharsets.UTF_8);
+        // No sendfile: the export is only pinned against eviction until stream() returns
+        boolean found = subtitleExportService.export(id, subtitleFormat, file ->
+                mediaFileStreamer.stream(file, contentType, contentDisposition, true, false, request, response));
+        if (!found) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    private Map<String, Object> segmentPage(Long id, SegmentIndex index, List<SubtitleCue> segments, int total, int offset) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("transcriptionId", id);
+        body.put("durationMs", index.getDurationMs());
+        body.put("offset", offset);
+        body.put("total", total);
+        body.put("segments", segments);
+        if (offset + segments.size() < total) {
+            body.put("nextOffset", offset + segments.size());
+        }
+        return body;
+    }
+
+    private CompletableFuture<ResponseEntity<?>> toResponse(CompletableFuture<Transcription> transcription) {
+        return transcription
+                .<ResponseEntity<?>>thenApply(savedTranscription -> ResponseEntity.status(HttpStatus.CREATED).body(savedTranscription))
+                .exceptionally(error -> {
+                    Throwable e = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    logger.log(Level.SEVERE, "Transcription failed", e);
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(Map.of("error", "An error occurred during transcription: " + e.getMessage()));
+                });
     }
 }
\ No newline at end of file
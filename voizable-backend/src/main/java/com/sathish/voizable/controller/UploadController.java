@@ -0,0 +1,142 @@
+package com.sathish.voizable.controller;
+
+import com.sathish.voizable.service.ResumableUploadStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Resumable uploads following the tus 1.0 core protocol and its creation and termination extensions.
+// Chunks may also be sent out of order and in parallel; GET/HEAD report every received range in
+// Upload-Ranges next to the usual Upload-Offset. A finished upload is processed by passing its ID to
+// /api/captions/generate/{uploadId} or /api/audio/transcribe/{uploadId}.
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadController {
+
+    private static final Logger logger = Logger.getLogger(UploadController.class.getName());
+
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String OFFSET_OCTET_STREAM = "application/offset+octet-stream";
+
+    @Autowired
+    private ResumableUploadStore resumableUploadStore;
+
+    @RequestMapping(method = RequestMethod.OPTIONS)
+    public ResponseEntity<?> describeServer() {
+        return ResponseEntity.noContent()
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Tus-Version", TUS_VERSION)
+                .header("Tus-Extension", "creation,termination")
+                .header("Tus-Max-Size", String.valueOf(resumableUploadStore.getMaxSizeBytes()))
+                .build();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createUpload(@RequestHeader("Upload-Length") long length,
+                                          @RequestHeader(value = "Upload-Metadata", required = false) String metadata) {
+        Map<String, String> values = parseMetadata(metadata);
+        String fileName = values.getOrDefault("filename", "upload");
+        String contentType = values.getOrDefault("filetype", values.get("contentType"));
+        try {
+            ResumableUploadStore.Upload upload = resumableUploadStore.create(length, fileName, contentType);
+            return ResponseEntity.created(URI.create("/api/uploads/" + upload.getId()))
+                    .header("Tus-Resumable", TUS_VERSION)
+                    .header("Upload-Offset", "0")
+                    .body(Map.of("uploadId", upload.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not create resumable upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Could not create upload: " + e.getMessage()));
+        }
+    }
+
+    // Also answers HEAD, which is what tus clients use to find where to resume.
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId) {
+        return resumableUploadStore.find(uploadId)
+                .<ResponseEntity<?>>map(upload -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("uploadId", upload.getId());
+                    body.put("fileName", upload.getFileName());
+                    body.put("length", upload.getLength());
+                    body.put("offset", upload.getOffset());
+                    body.put("receivedBytes", upload.getReceivedBytes());
+                    body.put("ranges", upload.describeRanges());
+                    body.put("complete", upload.isComplete());
+                    return ResponseEntity.ok()
+                            .header("Tus-Resumable", TUS_VERSION)
+                            .header("Upload-Offset", String.valueOf(upload.getOffset()))
+                            .header("Upload-Length", String.valueOf(upload.getLength()))
+                            .header("Upload-Ranges", upload.describeRanges())
+                            .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                            .body(body);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping(value = "/{uploadId}", consumes = OFFSET_OCTET_STREAM)
+    public ResponseEntity<?> writeChunk(@PathVariable String uploadId, @RequestHeader("Upload-Offset") long offset,
+                                        HttpServletRequest request) {
+        ResumableUploadStore.Upload upload = resumableUploadStore.find(uploadId).orElse(null);
+        if (upload == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            long newOffset = resumableUploadStore.write(upload, offset, request.getContentLengthLong(),
+                    Channels.newChannel(request.getInputStream()));
+            return ResponseEntity.noContent()
+                    .header("Tus-Resumable", TUS_VERSION)
+                    .header("Upload-Offset", String.valueOf(newOffset))
+                    .header("Upload-Ranges", upload.describeRanges())
+                    .build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            // Usually the client went away; what arrived is kept and the client can resume
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Chunk was interrupted: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> deleteUpload(@PathVariable String uploadId) {
+        if (!resumableUploadStore.delete(uploadId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().header("Tus-Resumable", TUS_VERSION).build();
+    }
+
+    // Upload-Metadata is a comma-separated list of "key base64(value)" pairs.
+    private Map<String, String> parseMetadata(String metadata) {
+        Map<String, String> values = new HashMap<>();
+        if (metadata == null || metadata.isBlank()) {
+            return values;
+        }
+        for (String pair : metadata.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            try {
+                values.put(parts[0], parts.length > 1
+                        ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8) : "");
+            } catch (IllegalArgumentException e) {
+                // Ignore values that are not valid base64
+            }
+        }
+        return values;
+    }
+}
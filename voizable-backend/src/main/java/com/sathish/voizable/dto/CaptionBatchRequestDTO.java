@@ -0,0 +1,54 @@
+package com.sathish.voizable.dto;
+
+import java.util.List;
+
+// Manifest for a batch of finished resumable uploads (see UploadController).
+public class CaptionBatchRequestDTO {
+
+    private List<String> uploadIds;
+    private String fontStyle;
+    private String profile;
+    private String outputMode;
+    private boolean sidecarVtt;
+
+    // Getters and Setters
+    public List<String> getUploadIds() {
+        return uploadIds;
+    }
+
+    public void setUploadIds(List<String> uploadIds) {
+        this.uploadIds = uploadIds;
+    }
+
+    public String getFontStyle() {
+        return fontStyle;
+    }
+
+    public void setFontStyle(String fontStyle) {
+        this.fontStyle = fontStyle;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public String getOutputMode() {
+        return outputMode;
+    }
+
+    public void setOutputMode(String outputMode) {
+        this.outputMode = outputMode;
+    }
+
+    public boolean isSidecarVtt() {
+        return sidecarVtt;
+    }
+
+    public void setSidecarVtt(boolean sidecarVtt) {
+        this.sidecarVtt = sidecarVtt;
+    }
+}
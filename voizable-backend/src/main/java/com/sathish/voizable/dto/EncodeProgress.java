@@ -0,0 +1,51 @@
+package com.sathish.voizable.dto;
+
+// Snapshot of a running FFmpeg encode, parsed from its -progress output.
+public class EncodeProgress {
+
+    private final long outTimeMs;
+    private final long durationMs;
+    private final double fps;
+    private final double speed;
+
+    public EncodeProgress(long outTimeMs, long durationMs, double fps, double speed) {
+        this.outTimeMs = outTimeMs;
+        this.durationMs = durationMs;
+        this.fps = fps;
+        this.speed = speed;
+    }
+
+    public long getOutTimeMs() {
+        return outTimeMs;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public double getFps() {
+        return fps;
+    }
+
+    // Encode speed relative to real time, e.g. 2.5 means 2.5 seconds of media per second
+    public double getSpeed() {
+        return speed;
+    }
+
+    // Percent complete, or null while the input duration is unknown
+    public Double getPercent() {
+        if (durationMs <= 0) {
+            return null;
+        }
+        return Math.min(100.0, outTimeMs * 100.0 / durationMs);
+    }
+
+    // Wall-clock seconds remaining at the current speed, or null when it cannot be estimated
+    public Long getEtaSeconds() {
+        if (durationMs <= 0 || speed <= 0) {
+            return null;
+        }
+        long remainingMs = Math.max(0, durationMs - outTimeMs);
+        return Math.round(remainingMs / 1000.0 / speed);
+    }
+}
@@ -0,0 +1,53 @@
+package com.sathish.voizable.dto;
+
+// A single timed caption, with times in milliseconds from the start of the media.
+public class SubtitleCue {
+
+    private int index;
+    private long startMs;
+    private long endMs;
+    private String text;
+
+    public SubtitleCue() {
+    }
+
+    public SubtitleCue(int index, long startMs, long endMs, String text) {
+        this.index = index;
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.text = text;
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public long getStartMs() {
+        return startMs;
+    }
+
+    public void setStartMs(long startMs) {
+        this.startMs = startMs;
+    }
+
+    public long getEndMs() {
+        return endMs;
+    }
+
+    public void setEndMs(long endMs) {
+        this.endMs = endMs;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
@@ -0,0 +1,17 @@
+package com.sathish.voizable.dto;
+
+import java.time.LocalDateTime;
+
+// Projection of a transcription row for listings; never touches the transcript itself.
+public interface TranscriptionSummary {
+
+    Long getId();
+
+    String getOriginalFileName();
+
+    LocalDateTime getCreatedAt();
+
+    Integer getSegmentCount();
+
+    Long getDurationMs();
+}
@@ -0,0 +1,12 @@
+package com.sathish.voizable.exception;
+
+// Thrown when a resumable upload is not in a state that allows the request, e.g. it is still
+// being written or has already been handed to a pipeline. Answered with 409.
+public class UploadConflictException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UploadConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package com.sathish.voizable.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// A group of caption jobs submitted together. The jobs themselves carry the batch id; this row
+// only records that the batch exists and how many items it was created with.
+@Entity
+@Table(name = "caption_batches")
+public class CaptionBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    private int itemCount;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // --- Getters and Setters ---
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public int getItemCount() { return itemCount; }
+    public void setItemCount(int itemCount) { this.itemCount = itemCount; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "caption_jobs")
+@Table(name = "caption_jobs", indexes = @Index(name = "idx_caption_jobs_batch", columnList = "batchId"))
 public class CaptionJob {
 
     public enum Status {
@@ -14,6 +14,11 @@ public class CaptionJob {
         FAILED
     }
 
+    public enum OutputMode {
+        BURN, // Re-encode the video with open captions drawn into the picture
+        SOFT  // Copy the streams and mux the captions as a mov_text subtitle track
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
@@ -25,6 +30,40 @@ public class CaptionJob {
     private String originalFileName;
     private String captionedVideoPath;
 
+    // Job options, kept on the record so every pipeline stage reads them from one place
+    private String fontStyle;
+
+    @Enumerated(EnumType.STRING)
+    private OutputMode outputMode;
+
+    private Boolean sidecarVtt;
+
+    // Name of the ffmpeg.encoding.profiles entry used for burn-in; null means the default profile
+    private String encodingProfile;
+
+    // WebVTT file written next to the output video when sidecarVtt is requested
+    private String subtitlePath;
+
+    // Live encode progress, updated while FFmpeg runs
+    private Double progressPercent;
+    private Long etaSeconds;
+    private Double encodeSpeed;
+
+    // Staged upload on shared storage, so whichever node claims the job can read it
+    private String stagedPath;
+    private String stagedContentType;
+    private String stagedContentHash;
+
+    // Work-queue lease: the node running the job and when its claim lapses unless renewed
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+    private Integer attempts;
+
+    // Batch membership: items wait in the work queue and are claimed in queueRank order
+    private String batchId;
+    private Integer batchPosition;
+    private Long queueRank;
+
     @Lob // Use @Lob for long text fields
     @Column(columnDefinition = "TEXT") // Explicitly define as TEXT for MySQL
     private String errorMessage;
@@ -32,6 +71,9 @@ public class CaptionJob {
     private LocalDateTime createdAt;
     private LocalDateTime completedAt;
 
+    // Set when the output files were deleted to free disk space (see OutputArtifactManager)
+    private LocalDateTime outputsEvictedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -47,10 +89,47 @@ public class CaptionJob {
     public void setOriginalFileName(String originalFileName) { this.originalFileName = originalFileName; }
     public String getCaptionedVideoPath() { return captionedVideoPath; }
     public void setCaptionedVideoPath(String captionedVideoPath) { this.captionedVideoPath = captionedVideoPath; }
+    public String getFontStyle() { return fontStyle; }
+    public void setFontStyle(String fontStyle) { this.fontStyle = fontStyle; }
+    // Jobs created before output modes existed were always burned in
+    public OutputMode getOutputMode() { return outputMode != null ? outputMode : OutputMode.BURN; }
+    public void setOutputMode(OutputMode outputMode) { this.outputMode = outputMode; }
+    public boolean isSidecarVtt() { return Boolean.TRUE.equals(sidecarVtt); }
+    public void setSidecarVtt(boolean sidecarVtt) { this.sidecarVtt = sidecarVtt; }
+    public String getEncodingProfile() { return encodingProfile; }
+    public void setEncodingProfile(String encodingProfile) { this.encodingProfile = encodingProfile; }
+    public String getSubtitlePath() { return subtitlePath; }
+    public void setSubtitlePath(String subtitlePath) { this.subtitlePath = subtitlePath; }
+    public Double getProgressPercent() { return progressPercent; }
+    public void setProgressPercent(Double progressPercent) { this.progressPercent = progressPercent; }
+    public Long getEtaSeconds() { return etaSeconds; }
+    public void setEtaSeconds(Long etaSeconds) { this.etaSeconds = etaSeconds; }
+    public Double getEncodeSpeed() { return encodeSpeed; }
+    public void setEncodeSpeed(Double encodeSpeed) { this.encodeSpeed = encodeSpeed; }
+    public String getStagedPath() { return stagedPath; }
+    public void setStagedPath(String stagedPath) { this.stagedPath = stagedPath; }
+    public String getStagedContentType() { return stagedContentType; }
+    public void setStagedContentType(String stagedContentType) { this.stagedContentType = stagedContentType; }
+    public String getStagedContentHash() { return stagedContentHash; }
+    public void setStagedContentHash(String stagedContentHash) { this.stagedContentHash = stagedContentHash; }
+    public String getLeaseOwner() { return leaseOwner; }
+    public void setLeaseOwner(String leaseOwner) { this.leaseOwner = leaseOwner; }
+    public LocalDateTime getLeaseExpiresAt() { return leaseExpiresAt; }
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) { this.leaseExpiresAt = leaseExpiresAt; }
+    public int getAttempts() { return attempts != null ? attempts : 0; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public String getBatchId() { return batchId; }
+    public void setBatchId(String batchId) { this.batchId = batchId; }
+    public Integer getBatchPosition() { return batchPosition; }
+    public void setBatchPosition(Integer batchPosition) { this.batchPosition = batchPosition; }
+    public Long getQueueRank() { return queueRank; }
+    public void setQueueRank(Long queueRank) { this.queueRank = queueRank; }
     public String getErrorMessage() { return errorMessage; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getCompletedAt() { return completedAt; }
     public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    public LocalDateTime getOutputsEvictedAt() { return outputsEvictedAt; }
+    public void setOutputsEvictedAt(LocalDateTime outputsEvictedAt) { this.outputsEvictedAt = outputsEvictedAt; }
 }
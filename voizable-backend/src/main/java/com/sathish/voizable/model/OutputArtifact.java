@@ -0,0 +1,57 @@
+package com.sathish.voizable.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// A file a caption job wrote to uploads.dir. Rows are kept after the file is evicted, so the
+// download endpoints can tell a deleted output from one that never existed.
+@Entity
+@Table(name = "output_artifacts", indexes = {
+        @Index(name = "idx_output_artifacts_job", columnList = "jobId"),
+        @Index(name = "idx_output_artifacts_access", columnList = "evictedAt, lastAccessedAt")
+})
+public class OutputArtifact {
+
+    public enum Kind {
+        VIDEO,
+        SUBTITLES
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Null for files found on disk that no job refers to
+    private String jobId;
+
+    @Column(nullable = false, unique = true)
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    private long sizeBytes;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime lastAccessedAt;
+    private LocalDateTime evictedAt;
+
+    // --- Getters and Setters ---
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public Kind getKind() { return kind; }
+    public void setKind(Kind kind) { this.kind = kind; }
+    public long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(long sizeBytes) { this.sizeBytes = sizeBytes; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getLastAccessedAt() { return lastAccessedAt; }
+    public void setLastAccessedAt(LocalDateTime lastAccessedAt) { this.lastAccessedAt = lastAccessedAt; }
+    public LocalDateTime getEvictedAt() { return evictedAt; }
+    public void setEvictedAt(LocalDateTime evictedAt) { this.evictedAt = evictedAt; }
+}
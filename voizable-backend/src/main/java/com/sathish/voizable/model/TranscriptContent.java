@@ -0,0 +1,41 @@
+package com.sathish.voizable.model;
+
+import jakarta.persistence.*;
+
+// Transcript segments encoded by TranscriptCodec. Kept out of the transcriptions row so listings
+// and lookups by hash never read the transcript body unless they ask for it.
+@Entity
+@Table(name = "transcript_contents")
+public class TranscriptContent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] segments;
+
+    public TranscriptContent() {
+    }
+
+    public TranscriptContent(byte[] segments) {
+        this.segments = segments;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public byte[] getSegments() {
+        return segments;
+    }
+
+    public void setSegments(byte[] segments) {
+        this.segments = segments;
+    }
+}
@@ -1,11 +1,20 @@
 package com.sathish.voizable.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sathish.voizable.dto.SubtitleCue;
+import com.sathish.voizable.util.SrtUtils;
+import com.sathish.voizable.util.TranscriptCodec;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Entity
-@Table(name = "transcriptions")
+@Table(name = "transcriptions", indexes = {
+        @Index(name = "idx_transcriptions_content_hash", columnList = "content_hash")
+})
 public class Transcription {
 
     @Id
@@ -15,18 +24,36 @@ public class Transcription {
     @Column(nullable = false)
     private String originalFileName;
 
+    // Inline storage. Rows written in compressed mode leave both null and keep the segments in content.
     @Lob // Specifies that the field should be stored as a Large Object (TEXT type)
-    @Column(nullable = false, columnDefinition = "TEXT")
+    @Column(columnDefinition = "TEXT")
     private String plainText;
 
     @Lob
-    @Column(nullable = false, columnDefinition = "TEXT")
+    @Column(columnDefinition = "TEXT")
     private String srtContent;
 
+    // Compressed segments, only read when the transcript itself is needed
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "content_id")
+    private TranscriptContent content;
+
+    // Summary columns for listings
+    private Integer segmentCount;
+    private Long durationMs;
+
+    // SHA-256 of the uploaded file, used to skip re-transcribing identical uploads
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @CreationTimestamp // Automatically sets the value when the record is first created
     @Column(updatable = false, nullable = false)
     private LocalDateTime createdAt;
 
+    // Segments decoded from content, kept so text and SRT are derived from a single decode
+    @Transient
+    private List<SubtitleCue> decodedSegments;
+
     // --- Constructors ---
     public Transcription() {
     }
@@ -49,7 +76,12 @@ public class Transcription {
     }
 
     public String getPlainText() {
-        return plainText;
+        if (plainText != null || content == null) {
+            return plainText;
+        }
+        return getSegments().stream()
+                .map(cue -> cue.getText().replace('\n', ' '))
+                .collect(Collectors.joining(" "));
     }
 
     public void setPlainText(String plainText) {
@@ -57,13 +89,73 @@ public class Transcription {
     }
 
     public String getSrtContent() {
-        return srtContent;
+        if (srtContent != null || content == null) {
+            return srtContent;
+        }
+        return SrtUtils.format(getSegments());
+    }
+
+    @JsonIgnore
+    public List<SubtitleCue> getSegments() {
+        if (content == null) {
+            return SrtUtils.parse(srtContent);
+        }
+        if (decodedSegments == null) {
+            decodedSegments = TranscriptCodec.decode(content.getSegments());
+        }
+        return decodedSegments;
+    }
+
+    // Visits the cues in order; compressed segments are inflated as they are visited rather than
+    // decoded into a list first.
+    public void forEachSegment(TranscriptCodec.CueSink sink) throws IOException {
+        if (content != null && decodedSegments == null) {
+            TranscriptCodec.decode(content.getSegments(), sink);
+            return;
+        }
+        for (SubtitleCue cue : getSegments()) {
+            sink.accept(cue);
+        }
+    }
+
+    @JsonIgnore
+    public TranscriptContent getContent() {
+        return content;
+    }
+
+    public void setContent(TranscriptContent content) {
+        this.content = content;
+        this.decodedSegments = null;
+    }
+
+    public Integer getSegmentCount() {
+        return segmentCount;
+    }
+
+    public void setSegmentCount(Integer segmentCount) {
+        this.segmentCount = segmentCount;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
     }
 
     public void setSrtContent(String srtContent) {
         this.srtContent = srtContent;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
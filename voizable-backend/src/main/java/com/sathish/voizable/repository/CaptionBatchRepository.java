@@ -0,0 +1,9 @@
+package com.sathish.voizable.repository;
+
+import com.sathish.voizable.model.CaptionBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CaptionBatchRepository extends JpaRepository<CaptionBatch, String> {
+}
@@ -2,10 +2,117 @@ package com.sathish.voizable.repository;
 
 import com.sathish.voizable.model.CaptionJob;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CaptionJobRepository extends JpaRepository<CaptionJob, String> {
     // Spring Data JPA automatically provides all the necessary database
     // operations like save(), findById(), etc. based on this interface.
+
+    // Writes only the progress columns, and only while the job is still running, so a late update
+    // from the FFmpeg reader thread can never overwrite a finished job.
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.progressPercent = :percent, j.etaSeconds = :eta, j.encodeSpeed = :speed " +
+            "WHERE j.id = :id AND j.status = com.sathish.voizable.model.CaptionJob.Status.PROCESSING")
+    int updateProgress(@Param("id") String id, @Param("percent") Double percent,
+                       @Param("eta") Long eta, @Param("speed") Double speed);
+
+    // Status and terminal updates are fenced on the lease: a node that lost the job to another one
+    // updates 0 rows and must stop working on it.
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.status = :status WHERE j.id = :id AND j.leaseOwner = :owner")
+    int updateStatus(@Param("id") String id, @Param("status") CaptionJob.Status status, @Param("owner") String owner);
+
+    // Finishing a job also drops its lease and staged upload, taking it out of the work queue
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.status = com.sathish.voizable.model.CaptionJob.Status.COMPLETED, " +
+            "j.captionedVideoPath = :videoPath, j.subtitlePath = :subtitlePath, " +
+            "j.progressPercent = 100.0, j.etaSeconds = 0, j.completedAt = :completedAt, " +
+            "j.leaseOwner = null, j.leaseExpiresAt = null, j.stagedPath = null WHERE j.id = :id AND j.leaseOwner = :owner")
+    int markCompleted(@Param("id") String id, @Param("videoPath") String captionedVideoPath,
+                      @Param("subtitlePath") String subtitlePath, @Param("completedAt") LocalDateTime completedAt,
+                      @Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.status = com.sathish.voizable.model.CaptionJob.Status.FAILED, " +
+            "j.errorMessage = :errorMessage, j.completedAt = :completedAt, " +
+            "j.leaseOwner = null, j.leaseExpiresAt = null, j.stagedPath = null WHERE j.id = :id AND j.leaseOwner = :owner")
+    int markFailed(@Param("id") String id, @Param("errorMessage") String errorMessage,
+                   @Param("completedAt") LocalDateTime completedAt, @Param("owner") String owner);
+
+    // Records where the upload was staged and leases the job to the node that staged it.
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.stagedPath = :path, j.stagedContentType = :contentType, " +
+            "j.stagedContentHash = :contentHash, j.leaseOwner = :owner, j.leaseExpiresAt = :leaseExpiresAt, " +
+            "j.attempts = 1 WHERE j.id = :id")
+    int assignStaged(@Param("id") String id, @Param("path") String path, @Param("contentType") String contentType,
+                     @Param("contentHash") String contentHash, @Param("owner") String owner,
+                     @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    // Unfinished jobs nobody holds a live lease on, oldest first. Rows another node is claiming
+    // right now are skipped rather than waited for; the caller's transaction keeps the rest locked.
+    // Jobs that never got a staged upload are included once they are older than unstagedBefore.
+    // Batch items are claimed separately, see lockClaimableBatchItems.
+    @Query(value = "SELECT * FROM caption_jobs WHERE status IN ('PENDING', 'PROCESSING') AND batch_id IS NULL " +
+            "AND (lease_expires_at IS NULL OR lease_expires_at < :now) " +
+            "AND (staged_path IS NOT NULL OR created_at < :unstagedBefore) " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<CaptionJob> lockClaimable(@Param("now") LocalDateTime now, @Param("unstagedBefore") LocalDateTime unstagedBefore,
+                                   @Param("limit") int limit);
+
+    // Unleased batch items in fair-share order; they are always staged before they are queued.
+    @Query(value = "SELECT * FROM caption_jobs WHERE status IN ('PENDING', 'PROCESSING') AND batch_id IS NOT NULL " +
+            "AND (lease_expires_at IS NULL OR lease_expires_at < :now) " +
+            "ORDER BY queue_rank LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<CaptionJob> lockClaimableBatchItems(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    List<CaptionJob> findByBatchIdOrderByBatchPositionAsc(String batchId);
+
+    // Of the given jobs, the unfinished ones the owner no longer holds the lease on
+    @Query("SELECT j.id FROM CaptionJob j WHERE j.id IN :ids AND (j.leaseOwner IS NULL OR j.leaseOwner <> :owner) " +
+            "AND j.status IN (com.sathish.voizable.model.CaptionJob.Status.PENDING, " +
+            "com.sathish.voizable.model.CaptionJob.Status.PROCESSING)")
+    List<String> findLostLeases(@Param("owner") String owner, @Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.leaseExpiresAt = :leaseExpiresAt WHERE j.leaseOwner = :owner AND j.id IN :ids")
+    int renewLeases(@Param("owner") String owner, @Param("ids") Collection<String> ids,
+                    @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    // Makes the owner's unfinished jobs claimable straight away, after a restart under the same node id.
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.leaseOwner = null, j.leaseExpiresAt = null WHERE j.leaseOwner = :owner " +
+            "AND j.status IN (com.sathish.voizable.model.CaptionJob.Status.PENDING, " +
+            "com.sathish.voizable.model.CaptionJob.Status.PROCESSING)")
+    int releaseLeases(@Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    // Gives back a claim that never started, along with the attempt the claim counted
+    @Query("UPDATE CaptionJob j SET j.leaseOwner = null, j.leaseExpiresAt = null, j.attempts = j.attempts - 1 " +
+            "WHERE j.id = :id AND j.leaseOwner = :owner AND j.attempts > 0")
+    int returnUnstarted(@Param("id") String id, @Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptionJob j SET j.outputsEvictedAt = :evictedAt WHERE j.id = :id")
+    int markOutputsEvicted(@Param("id") String id, @Param("evictedAt") LocalDateTime evictedAt);
+
+    Optional<CaptionJob> findFirstByCaptionedVideoPathOrSubtitlePath(String captionedVideoPath, String subtitlePath);
 }
@@ -0,0 +1,49 @@
+package com.sathish.voizable.repository;
+
+import com.sathish.voizable.model.OutputArtifact;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutputArtifactRepository extends JpaRepository<OutputArtifact, Long> {
+
+    Optional<OutputArtifact> findByFileName(String fileName);
+
+    List<OutputArtifact> findByJobIdAndEvictedAtIsNull(String jobId);
+
+    @Query("SELECT a.fileName FROM OutputArtifact a WHERE a.fileName IN :fileNames")
+    List<String> findTrackedFileNames(@Param("fileNames") Collection<String> fileNames);
+
+    @Query("SELECT COALESCE(SUM(a.sizeBytes), 0) FROM OutputArtifact a WHERE a.evictedAt IS NULL")
+    long sumLiveBytes();
+
+    // Least recently used first
+    List<OutputArtifact> findByEvictedAtIsNullOrderByLastAccessedAtAsc(Pageable pageable);
+
+    List<OutputArtifact> findByEvictedAtIsNullAndLastAccessedAtBefore(LocalDateTime cutoff, Pageable pageable);
+
+    // Only moves the timestamp once per interval, so streaming a preview in range requests does not
+    // write a row per request.
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutputArtifact a SET a.lastAccessedAt = :now WHERE a.fileName = :fileName " +
+            "AND a.evictedAt IS NULL AND a.lastAccessedAt < :touchedBefore")
+    int touch(@Param("fileName") String fileName, @Param("now") LocalDateTime now,
+              @Param("touchedBefore") LocalDateTime touchedBefore);
+
+    // Returns 0 if another node evicted it first
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutputArtifact a SET a.evictedAt = :now WHERE a.id = :id AND a.evictedAt IS NULL")
+    int markEvicted(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
@@ -1,12 +1,36 @@
 package com.sathish.voizable.repository;
 
+import com.sathish.voizable.dto.TranscriptionSummary;
 import com.sathish.voizable.model.Transcription;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TranscriptionRepository extends JpaRepository<Transcription, Long> {
     // JpaRepository provides all the standard database operations like
     // save(), findById(), findAll(), delete(), etc.
     // We can add custom query methods here if needed in the future.
+
+    // Backed by the idx_transcriptions_content_hash index for the upload cache. The cache reads the
+    // transcript outside a transaction, so compressed content is fetched in the same query.
+    @EntityGraph(attributePaths = "content")
+    Optional<Transcription> findFirstByContentHashOrderByIdDesc(String contentHash);
+
+    @EntityGraph(attributePaths = "content")
+    Optional<Transcription> findWithContentById(Long id);
+
+    // Keyset pages in ID order for the search index's catch-up pass.
+    @EntityGraph(attributePaths = "content")
+    List<Transcription> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    Optional<Transcription> findTopByOrderByIdDesc();
+
+    // Metadata-only listing; selects just the projected columns.
+    Page<TranscriptionSummary> findAllBy(Pageable pageable);
 }
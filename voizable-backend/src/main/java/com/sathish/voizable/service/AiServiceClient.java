@@ -0,0 +1,176 @@
+package com.sathish.voizable.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sathish.voizable.dto.TranscriptionResponseDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+// Posts audio to the Python Whisper service and maps its JSON response. Calls go out on the shared
+// pooled HttpClient to a backend picked by TranscriptionBackendPool; the request body is streamed
+// from disk or from the caller's stream, and no thread waits on the socket while the service is
+// transcribing.
+@Component
+public class AiServiceClient {
+
+    private static final Logger logger = Logger.getLogger(AiServiceClient.class.getName());
+
+    @Autowired
+    private HttpClient aiHttpClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private TranscriptionBackendPool backendPool;
+
+    // Upper bound on backends tried for one request when connections are refused
+    @Value("${ai.service.pool.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${ai.service.response-timeout-ms:900000}")
+    private long responseTimeoutMs;
+
+    public TranscriptionResponseDTO transcribe(Resource audio) throws IOException, InterruptedException {
+        try {
+            return transcribeAsync(audio).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("AI service call failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    public CompletableFuture<TranscriptionResponseDTO> transcribeAsync(Resource audio) {
+        return transcribeOn(audio, new HashSet<>());
+    }
+
+    // Sends the audio to the least loaded backend. A connection failure is retried on another backend
+    // when the body can be read again; once bytes have reached a backend the request is never replayed.
+    private CompletableFuture<TranscriptionResponseDTO> transcribeOn(Resource audio, Set<TranscriptionBackendPool.Endpoint> tried) {
+        return backendPool.acquire(tried).thenCompose(endpoint -> {
+            tried.add(endpoint);
+            return send(endpoint, audio).handle((response, error) -> {
+                Throwable cause = unwrap(error);
+                boolean endpointFailed = cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException
+                        || cause instanceof BackendUnavailableException;
+                backendPool.release(endpoint, endpointFailed);
+                if (error == null) {
+                    return CompletableFuture.completedFuture(response);
+                }
+                boolean replayable = !audio.isOpen();
+                boolean connectFailure = cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+                if (connectFailure && replayable && tried.size() < Math.min(backendPool.size(), maxAttempts)) {
+                    logger.info("Could not connect to " + endpoint.getUri() + ", retrying on another backend");
+                    return transcribeOn(audio, tried);
+                }
+                return CompletableFuture.<TranscriptionResponseDTO>failedFuture(cause);
+            }).thenCompose(result -> result);
+        });
+    }
+
+    private CompletableFuture<TranscriptionResponseDTO> send(TranscriptionBackendPool.Endpoint endpoint, Resource audio) {
+        String boundary = "voizable-" + UUID.randomUUID();
+        String filename = audio.getFilename() != null ? audio.getFilename() : "audio.wav";
+        String partHeader = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        String closing = "\r\n--" + boundary + "--\r\n";
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(endpoint.getUri())
+                    .timeout(Duration.ofMillis(responseTimeoutMs))
+                    .header(HttpHeaders.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.concat(
+                            HttpRequest.BodyPublishers.ofString(partHeader, StandardCharsets.UTF_8),
+                            audioPublisher(audio),
+                            HttpRequest.BodyPublishers.ofString(closing, StandardCharsets.US_ASCII)))
+                    .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        logger.fine("Calling Python AI service at " + endpoint.getUri());
+        long apiCallStartTime = System.nanoTime();
+        return aiHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(this::toTranscription)
+                .whenComplete((response, error) -> {
+                    pipelineMetrics.record(PipelineMetrics.AI_TRANSCRIBE, System.nanoTime() - apiCallStartTime, error);
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // Files are sent with a known length straight from disk; other resources are streamed chunked.
+    private HttpRequest.BodyPublisher audioPublisher(Resource audio) throws IOException {
+        if (audio.isFile()) {
+            return HttpRequest.BodyPublishers.ofFile(audio.getFile().toPath());
+        }
+        return HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return audio.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private TranscriptionResponseDTO toTranscription(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            String body = new String(response.body(), StandardCharsets.UTF_8);
+            if (response.statusCode() >= 500) {
+                // Counts against the backend's health, but the audio may already have been processed
+                throw new CompletionException(new BackendUnavailableException("AI service returned HTTP " + response.statusCode() + ": "
+                        + body.substring(0, Math.min(body.length(), 500))));
+            }
+            throw new CompletionException(new IOException("AI service returned HTTP " + response.statusCode() + ": "
+                    + body.substring(0, Math.min(body.length(), 500))));
+        }
+        try {
+            return objectMapper.readValue(response.body(), TranscriptionResponseDTO.class);
+        } catch (IOException e) {
+            throw new CompletionException(new IOException("Could not read the AI service response: " + e.getMessage(), e));
+        }
+    }
+
+    private static class BackendUnavailableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BackendUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
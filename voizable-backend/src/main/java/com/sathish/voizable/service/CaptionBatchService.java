@@ -0,0 +1,162 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.model.CaptionBatch;
+import com.sathish.voizable.model.CaptionJob;
+import com.sathish.voizable.repository.CaptionBatchRepository;
+import com.sathish.voizable.repository.CaptionJobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+// Batches of caption jobs. Items are not admitted when the batch is submitted: they are written to
+// caption_jobs with a staged upload and no lease, and CaptionJobQueue claims them like any other
+// unleased job as slots free up, on whichever node has capacity. Batch items never take the slots
+// reserved for single uploads.
+//
+// Items are claimed in queueRank order, a virtual clock: item n of a batch created at time t ranks
+// at t + n * batches.item-interval-ms. A new batch therefore interleaves with one that is already
+// running instead of waiting behind all of it, while a batch that had the cluster to itself earlier
+// gives way to newcomers until they catch up.
+@Service
+public class CaptionBatchService {
+
+    private static final Logger logger = Logger.getLogger(CaptionBatchService.class.getName());
+
+    @Autowired
+    private CaptionBatchRepository captionBatchRepository;
+
+    @Autowired
+    private CaptionJobRepository captionJobRepository;
+
+    @Autowired
+    private CaptionJobStore captionJobStore;
+
+    @Autowired
+    private CaptionJobQueue captionJobQueue;
+
+    @Autowired
+    private StagingStore stagingStore;
+
+    @Autowired
+    private CaptionService captionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${batches.max-items:100}")
+    private int maxItems;
+
+    @Value("${batches.item-interval-ms:30000}")
+    private long itemIntervalMs;
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    // Queues one job per staged upload. The batch takes over the caller's references to the uploads.
+    public CaptionBatch createBatch(List<StagedUpload> uploads, String fontStyle, String encodingProfile,
+                                    CaptionJob.OutputMode outputMode, boolean sidecarVtt) {
+        CaptionBatch batch = transactionTemplate.execute(status -> {
+            CaptionBatch created = new CaptionBatch();
+            created.setItemCount(uploads.size());
+            created = captionBatchRepository.save(created);
+            long baseRank = created.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            List<CaptionJob> items = new ArrayList<>(uploads.size());
+            for (int i = 0; i < uploads.size(); i++) {
+                StagedUpload upload = uploads.get(i);
+                CaptionJob job = new CaptionJob();
+                job.setOriginalFileName(upload.getOriginalFileName());
+                job.setFontStyle(fontStyle);
+                job.setEncodingProfile(encodingProfile);
+                job.setOutputMode(outputMode);
+                job.setSidecarVtt(sidecarVtt);
+                job.setStagedPath(upload.getPath().toAbsolutePath().toString());
+                job.setStagedContentType(upload.getContentType());
+                job.setStagedContentHash(upload.getContentHash());
+                job.setAttempts(0);
+                job.setBatchId(created.getId());
+                job.setBatchPosition(i);
+                job.setQueueRank(baseRank + i * itemIntervalMs);
+                items.add(job);
+            }
+            captionJobRepository.saveAll(items);
+            return created;
+        });
+        // Committed, so the files now belong to the queued jobs
+        uploads.forEach(stagingStore::detach);
+        logger.info("Queued caption batch " + batch.getId() + " with " + uploads.size() + " items");
+        captionJobQueue.wakeUp();
+        return batch;
+    }
+
+    public Optional<CaptionBatch> find(String batchId) {
+        return captionBatchRepository.findById(batchId);
+    }
+
+    // Items in submission order. Running items come from the job store, which has their latest
+    // progress; the rest are as persisted.
+    public List<CaptionJob> getItems(String batchId) {
+        List<CaptionJob> items = captionJobRepository.findByBatchIdOrderByBatchPositionAsc(batchId);
+        List<CaptionJob> current = new ArrayList<>(items.size());
+        for (CaptionJob item : items) {
+            current.add(item.getStatus() == CaptionJob.Status.PROCESSING
+                    ? captionJobStore.find(item.getId()).orElse(item)
+                    : item);
+        }
+        return current;
+    }
+
+    public static boolean isFinished(List<CaptionJob> items) {
+        return items.stream().allMatch(item -> item.getStatus() == CaptionJob.Status.COMPLETED
+                || item.getStatus() == CaptionJob.Status.FAILED);
+    }
+
+    // The body returned by the batch status endpoint.
+    public Map<String, Object> describeBatch(CaptionBatch batch, List<CaptionJob> items) {
+        Map<CaptionJob.Status, Integer> counts = new LinkedHashMap<>();
+        for (CaptionJob.Status status : CaptionJob.Status.values()) {
+            counts.put(status, 0);
+        }
+        double progress = 0;
+        List<Map<String, Object>> described = new ArrayList<>(items.size());
+        for (CaptionJob item : items) {
+            counts.merge(item.getStatus(), 1, Integer::sum);
+            if (item.getStatus() == CaptionJob.Status.COMPLETED || item.getStatus() == CaptionJob.Status.FAILED) {
+                progress += 100;
+            } else if (item.getProgressPercent() != null) {
+                progress += item.getProgressPercent();
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("jobId", item.getId());
+            entry.put("fileName", item.getOriginalFileName());
+            entry.putAll(captionService.describeJob(item));
+            if (item.getStatus() == CaptionJob.Status.FAILED) {
+                entry.put("error", item.getErrorMessage());
+            }
+            described.add(entry);
+        }
+
+        boolean finished = isFinished(items);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("batchId", batch.getId());
+        body.put("status", finished ? "COMPLETED"
+                : counts.get(CaptionJob.Status.PENDING) == items.size() ? "PENDING" : "PROCESSING");
+        body.put("total", items.size());
+        counts.forEach((status, count) -> body.put(status.name().toLowerCase(), count));
+        body.put("progressPercent", items.isEmpty() ? 100.0 : Math.round(progress / items.size() * 10) / 10.0);
+        if (finished && counts.get(CaptionJob.Status.COMPLETED) > 0) {
+            body.put("downloadUrl", "/api/captions/batches/" + batch.getId() + "/download");
+        }
+        body.put("items", described);
+        return body;
+    }
+}
@@ -0,0 +1,276 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.model.CaptionJob;
+import com.sathish.voizable.repository.CaptionJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Treats caption_jobs as a work queue shared by every backend node. A node leases each job it runs
+// and renews the lease on a heartbeat while the job is in progress. Jobs that nobody holds a live
+// lease on, because their node crashed, restarted or never picked them up, are claimed with
+// SELECT ... FOR UPDATE SKIP LOCKED by whichever node has free capacity and retried from the staged
+// upload, up to a maximum number of attempts.
+@Component
+public class CaptionJobQueue {
+
+    private static final Logger logger = Logger.getLogger(CaptionJobQueue.class.getName());
+
+    public interface ClaimHandler {
+        void onClaimed(CaptionJob job, CaptionJobScheduler.Admission admission);
+    }
+
+    // Called when another node has taken over a job running here, after its lease lapsed.
+    public interface LeaseLostHandler {
+        void onLeaseLost(String jobId);
+    }
+
+    @Autowired
+    private CaptionJobRepository captionJobRepository;
+
+    @Autowired
+    private CaptionJobScheduler captionJobScheduler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FileJanitor fileJanitor;
+
+    // Identifies this node in lease_owner. Keep it stable across restarts so a restarted node can
+    // take its own jobs back at once instead of waiting for their leases to lapse.
+    @Value("${jobs.queue.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    @Value("${jobs.queue.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${jobs.queue.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${jobs.queue.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${jobs.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    // Jobs whose upload never reached staging storage are failed after this long
+    @Value("${jobs.queue.unstaged-timeout-seconds:3600}")
+    private long unstagedTimeoutSeconds;
+
+    private String nodeId;
+    private final Set<String> ownedJobs = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService executor;
+    private volatile ClaimHandler claimHandler;
+    private volatile LeaseLostHandler leaseLostHandler = jobId -> { };
+    private final AtomicBoolean wakeUpQueued = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        nodeId = configuredNodeId.isBlank() ? defaultNodeId() : configuredNodeId;
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "caption-job-queue-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Starts pulling claimable jobs, handing each one to the handler with an admission slot.
+    public void start(ClaimHandler handler, LeaseLostHandler lostHandler) {
+        leaseLostHandler = lostHandler;
+        try {
+            int released = captionJobRepository.releaseLeases(nodeId);
+            if (released > 0) {
+                logger.info("Released " + released + " caption jobs left over from a previous run of " + nodeId);
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Could not release leases from a previous run: " + e.getMessage());
+        }
+        claimHandler = handler;
+        executor.scheduleWithFixedDelay(() -> poll(handler), pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Caption job queue started on node " + nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public LocalDateTime newLeaseExpiry() {
+        return LocalDateTime.now().plusSeconds(leaseSeconds);
+    }
+
+    // Jobs running on this node have their leases renewed until they are untracked.
+    public void track(String jobId) {
+        ownedJobs.add(jobId);
+    }
+
+    public void untrack(String jobId) {
+        ownedJobs.remove(jobId);
+    }
+
+    public boolean isOwned(String jobId) {
+        return ownedJobs.contains(jobId);
+    }
+
+    // Gives a claimed job that never started back to the queue so another node can take it now,
+    // without using up one of its attempts.
+    private void returnUnstarted(String jobId) {
+        ownedJobs.remove(jobId);
+        try {
+            captionJobRepository.returnUnstarted(jobId, nodeId);
+        } catch (RuntimeException e) {
+            logger.warning("Could not release the lease on job " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    // Polls now rather than at the next interval, e.g. when queued work arrives or a slot frees up.
+    public void wakeUp() {
+        ClaimHandler handler = claimHandler;
+        if (handler != null && wakeUpQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpQueued.set(false);
+                poll(handler);
+            });
+        }
+    }
+
+    // Synchronized so a wake-up never races the scheduled poll for the same free slots
+    private synchronized void poll(ClaimHandler handler) {
+        int capacity = captionJobScheduler.getFreeSlots();
+        if (capacity == 0) {
+            return;
+        }
+        List<CaptionJob> claimed;
+        try {
+            claimed = claim(capacity, captionJobScheduler.getFreeSlotsForBatches());
+        } catch (RuntimeException e) {
+            logger.warning("Could not poll the caption job queue: " + e.getMessage());
+            return;
+        }
+        for (CaptionJob job : claimed) {
+            long size = job.getStagedPath() != null ? new File(job.getStagedPath()).length() : 0;
+            CaptionJobScheduler.Admission admission = captionJobScheduler.tryAdmit(size);
+            if (admission == null) {
+                // Uploads on this node took the slots in the meantime
+                returnUnstarted(job.getId());
+                continue;
+            }
+            try {
+                handler.onClaimed(job, admission);
+            } catch (RuntimeException e) {
+                logger.severe("Could not start claimed caption job " + job.getId() + ": " + e.getMessage());
+                captionJobScheduler.release(admission);
+                returnUnstarted(job.getId());
+            }
+        }
+    }
+
+    // Jobs recovered from other nodes come first; batch items only get the slots outside the reserve.
+    private List<CaptionJob> claim(int limit, int batchLimit) {
+        List<Path> abandonedUploads = new ArrayList<>();
+        List<CaptionJob> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<CaptionJob> jobs = new ArrayList<>(captionJobRepository.lockClaimable(now, now.minusSeconds(unstagedTimeoutSeconds), limit));
+            int batchItems = Math.min(batchLimit, limit - jobs.size());
+            if (batchItems > 0) {
+                jobs.addAll(captionJobRepository.lockClaimableBatchItems(now, batchItems));
+            }
+            List<CaptionJob> runnable = new ArrayList<>();
+            // The rows stay locked until commit, so these changes cannot race another node's claim
+            for (CaptionJob job : jobs) {
+                if (ownedJobs.contains(job.getId())) {
+                    // Still running here; the heartbeat just missed it
+                    job.setLeaseOwner(nodeId);
+                    job.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+                } else if (job.getStagedPath() == null) {
+                    abandon(job, now, "The upload for this job never reached staging storage.", abandonedUploads);
+                } else if (job.getAttempts() >= maxAttempts) {
+                    abandon(job, now, "Gave up after " + job.getAttempts() + " attempts; the nodes running it stopped responding.",
+                            abandonedUploads);
+                } else {
+                    job.setLeaseOwner(nodeId);
+                    job.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+                    job.setAttempts(job.getAttempts() + 1);
+                    runnable.add(job);
+                }
+            }
+            return runnable;
+        });
+        // Only once the failures are committed, so a rolled-back claim still finds its upload
+        abandonedUploads.forEach(path -> fileJanitor.delete(path, "staged upload of an abandoned job"));
+        claimed.forEach(job -> ownedJobs.add(job.getId()));
+        return claimed;
+    }
+
+    private void abandon(CaptionJob job, LocalDateTime now, String reason, List<Path> abandonedUploads) {
+        logger.warning("Failing caption job " + job.getId() + ": " + reason);
+        job.setStatus(CaptionJob.Status.FAILED);
+        job.setErrorMessage(reason);
+        job.setCompletedAt(now);
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        if (job.getStagedPath() != null) {
+            abandonedUploads.add(Paths.get(job.getStagedPath()));
+            job.setStagedPath(null);
+        }
+    }
+
+    private void heartbeat() {
+        if (ownedJobs.isEmpty()) {
+            return;
+        }
+        List<String> ids = List.copyOf(ownedJobs);
+        try {
+            int renewed = captionJobRepository.renewLeases(nodeId, ids, newLeaseExpiry());
+            if (renewed < ids.size()) {
+                // Either jobs finished during the renewal or this node was too slow and lost them
+                logger.info("Renewed " + renewed + " of " + ids.size() + " caption job leases");
+                for (String jobId : captionJobRepository.findLostLeases(nodeId, ids)) {
+                    logger.warning("Lost the lease on caption job " + jobId + " to another node; cancelling it here");
+                    ownedJobs.remove(jobId);
+                    leaseLostHandler.onLeaseLost(jobId);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Could not renew caption job leases: " + e.getMessage());
+        }
+    }
+
+    private String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + serverPort;
+        } catch (UnknownHostException e) {
+            return "node-" + Long.toHexString(System.nanoTime()) + ":" + serverPort;
+        }
+    }
+}
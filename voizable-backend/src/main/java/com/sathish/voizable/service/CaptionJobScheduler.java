@@ -0,0 +1,209 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.config.EncodingProperties;
+import com.sathish.voizable.config.WorkerThreads;
+import com.sathish.voizable.exception.JobRejectedException;
+import com.sathish.voizable.util.BoundedExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+// Runs captioning jobs on two dedicated pools: one for transcription (FFmpeg audio extraction and the
+// AI service call) and one for subtitle encoding. Both pools drain priority queues so short clips are
+// picked up ahead of long ones, and the total number of admitted jobs is capped so a burst of uploads
+// is turned away with a Retry-After estimate instead of slowing every job down. The pool sizes are
+// semaphore limits, so in virtual-thread mode they cap concurrent stages without tying up OS threads.
+@Component
+public class CaptionJobScheduler {
+
+    private static final Logger logger = Logger.getLogger(CaptionJobScheduler.class.getName());
+
+    public enum Lane {
+        SHORT,
+        LONG
+    }
+
+    // A slot held by one job from admission until it finishes, successfully or not.
+    public static class Admission {
+        private final Lane lane;
+        private final long sequence;
+        private final long admittedAtMillis = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(Lane lane, long sequence) {
+            this.lane = lane;
+            this.sequence = sequence;
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public long getAdmittedAtMillis() {
+            return admittedAtMillis;
+        }
+    }
+
+    // Orders queued work by lane first, then by admission order within a lane.
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Admission admission;
+        private final Runnable task;
+
+        PrioritizedTask(Admission admission, Runnable task) {
+            this.admission = admission;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byLane = admission.lane.compareTo(other.admission.lane);
+            return byLane != 0 ? byLane : Long.compare(admission.sequence, other.admission.sequence);
+        }
+    }
+
+    @Value("${jobs.transcription.pool-size:2}")
+    private int transcriptionPoolSize;
+
+    @Value("${jobs.encoding.pool-size:2}")
+    private int encodingPoolSize;
+
+    @Value("${jobs.max-admitted:20}")
+    private int maxAdmitted;
+
+    @Value("${jobs.short-clip-max-bytes:26214400}")
+    private long shortClipMaxBytes;
+
+    @Value("${jobs.retry-after-seconds:30}")
+    private long defaultRetryAfterSeconds;
+
+    // Slots batch items leave free, so a large batch never turns single uploads away with 429
+    @Value("${batches.reserved-slots:4}")
+    private int batchReservedSlots;
+
+    @Autowired
+    private EncodingProperties encodingProperties;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    private BoundedExecutor transcriptionExecutor;
+    private BoundedExecutor encodingExecutor;
+
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    // Exponentially weighted average of job duration, used for the Retry-After estimate
+    private final AtomicLong averageJobMillis = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        transcriptionExecutor = newPool(transcriptionPoolSize, "caption-transcribe-");
+        encodingExecutor = newPool(encodingPoolSize, "caption-encode-");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        transcriptionExecutor.shutdownNow();
+        encodingExecutor.shutdownNow();
+    }
+
+    public Admission admit(long mediaSizeBytes) {
+        Admission admission = tryAdmit(mediaSizeBytes);
+        if (admission == null) {
+            long retryAfter = estimateRetryAfterSeconds();
+            logger.warning("Rejecting captioning job: " + admitted.get() + " jobs already admitted. Retry after " + retryAfter + "s");
+            throw new JobRejectedException("The captioning service is busy. Please retry later.", retryAfter);
+        }
+        return admission;
+    }
+
+    // Takes a slot if one is free, otherwise returns null. Used for jobs claimed from the work queue.
+    public Admission tryAdmit(long mediaSizeBytes) {
+        while (true) {
+            int current = admitted.get();
+            if (current >= maxAdmitted) {
+                return null;
+            }
+            if (admitted.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        Lane lane = mediaSizeBytes <= shortClipMaxBytes ? Lane.SHORT : Lane.LONG;
+        return new Admission(lane, sequence.incrementAndGet());
+    }
+
+    public int getFreeSlots() {
+        return Math.max(0, maxAdmitted - admitted.get());
+    }
+
+    public int getFreeSlotsForBatches() {
+        return Math.max(0, getFreeSlots() - Math.min(batchReservedSlots, maxAdmitted - 1));
+    }
+
+    public void submitTranscription(Admission admission, Runnable task) {
+        transcriptionExecutor.execute(new PrioritizedTask(admission, task));
+    }
+
+    public void submitEncoding(Admission admission, Runnable task) {
+        encodingExecutor.execute(new PrioritizedTask(admission, task));
+    }
+
+    // Threads for one FFmpeg run. Every encoding worker gets an even share of the encode thread
+    // budget, so the pool stays within it even when all workers are busy, capped by the profile's
+    // own limit.
+    public int encodeThreads(EncodingProperties.Profile profile) {
+        int share = Math.max(1, encodingProperties.resolveTotalThreads() / Math.max(1, encodingPoolSize));
+        return profile.getThreads() > 0 ? Math.min(share, profile.getThreads()) : share;
+    }
+
+    // Frees the admission slot. Safe to call more than once.
+    public void release(Admission admission) {
+        if (!admission.released.compareAndSet(false, true)) {
+            return;
+        }
+        admitted.decrementAndGet();
+
+        long duration = System.currentTimeMillis() - admission.admittedAtMillis;
+        averageJobMillis.updateAndGet(avg -> avg == 0 ? duration : (avg * 4 + duration) / 5);
+    }
+
+    public int getAdmittedCount() {
+        return admitted.get();
+    }
+
+    public int getTranscriptionQueueDepth() {
+        return transcriptionExecutor.getQueueDepth();
+    }
+
+    public int getEncodingQueueDepth() {
+        return encodingExecutor.getQueueDepth();
+    }
+
+    // Roughly how long until a slot frees up: one average job spread over the pools that
+    // will drain the jobs ahead of the caller.
+    private long estimateRetryAfterSeconds() {
+        long avgMillis = averageJobMillis.get();
+        if (avgMillis == 0) {
+            return defaultRetryAfterSeconds;
+        }
+        int workers = Math.max(1, Math.min(transcriptionPoolSize, encodingPoolSize));
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(avgMillis / workers));
+    }
+
+    private BoundedExecutor newPool(int size, String namePrefix) {
+        return new BoundedExecutor(workerThreads.newUnboundedExecutor(namePrefix), size, new PriorityBlockingQueue<>());
+    }
+}
@@ -0,0 +1,245 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.model.CaptionJob;
+import com.sathish.voizable.repository.CaptionJobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+// Write-through cache of caption jobs in front of CaptionJobRepository. Jobs running on this node
+// are always served from memory; finished jobs stay for a TTL so the follow-up preview and download
+// requests do not hit the database either. Running jobs owned by another node are read through, since
+// only that node sees their updates. Every transition is written as a targeted column update.
+//
+// Cached jobs are never mutated in place: each change stores a fresh copy, so readers on other
+// threads always see a consistent job.
+@Component
+public class CaptionJobStore {
+
+    private static final Logger logger = Logger.getLogger(CaptionJobStore.class.getName());
+
+    private static class Entry {
+        private final CaptionJob job;
+        private final long expiresAtMillis;
+
+        Entry(CaptionJob job, long expiresAtMillis) {
+            this.job = job;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAtMillis > 0 && expiresAtMillis < now;
+        }
+    }
+
+    @Autowired
+    private CaptionJobRepository captionJobRepository;
+
+    @Autowired
+    private CaptionJobQueue captionJobQueue;
+
+    @Value("${jobs.cache.max-entries:1000}")
+    private int maxEntries;
+
+    // How long a finished job stays cached after it reached COMPLETED or FAILED
+    @Value("${jobs.cache.terminal-ttl-seconds:600}")
+    private long terminalTtlSeconds;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CaptionJob create(CaptionJob job) {
+        CaptionJob saved = captionJobRepository.save(job);
+        cache(copyOf(saved));
+        return copyOf(saved);
+    }
+
+    // Returns a copy of the job, loading it from the database only when it is not cached.
+    public Optional<CaptionJob> find(String jobId) {
+        Entry entry = entries.get(jobId);
+        if (entry != null && !entry.isExpired(System.currentTimeMillis())
+                && (entry.expiresAtMillis > 0 || captionJobQueue.isOwned(jobId))) {
+            return Optional.of(copyOf(entry.job));
+        }
+        if (entry != null) {
+            entries.remove(jobId, entry);
+        }
+        Optional<CaptionJob> loaded = captionJobRepository.findById(jobId);
+        loaded.ifPresent(job -> cache(copyOf(job)));
+        return loaded.map(CaptionJobStore::copyOf);
+    }
+
+    // Replaces the cached copy with a job just claimed from the work queue.
+    public void refresh(CaptionJob job) {
+        cache(copyOf(job));
+    }
+
+    public void assignStaged(String jobId, StagedUpload upload, String owner, LocalDateTime leaseExpiresAt) {
+        String path = upload.getPath().toAbsolutePath().toString();
+        captionJobRepository.assignStaged(jobId, path, upload.getContentType(), upload.getContentHash(), owner, leaseExpiresAt);
+        update(jobId, job -> {
+            job.setStagedPath(path);
+            job.setStagedContentType(upload.getContentType());
+            job.setStagedContentHash(upload.getContentHash());
+            job.setLeaseOwner(owner);
+            job.setLeaseExpiresAt(leaseExpiresAt);
+            job.setAttempts(1);
+        });
+    }
+
+    // The status transitions below return false, and change nothing, when owner no longer holds the
+    // job's lease.
+    public boolean markProcessing(String jobId, String owner) {
+        if (captionJobRepository.updateStatus(jobId, CaptionJob.Status.PROCESSING, owner) == 0) {
+            return leaseLost(jobId);
+        }
+        update(jobId, job -> job.setStatus(CaptionJob.Status.PROCESSING));
+        return true;
+    }
+
+    // The cached copy always reflects the latest progress; the database only when persist is set.
+    public void updateProgress(String jobId, Double percent, Long etaSeconds, Double speed, boolean persist) {
+        if (persist) {
+            captionJobRepository.updateProgress(jobId, percent, etaSeconds, speed);
+        }
+        update(jobId, job -> {
+            if (job.getStatus() == CaptionJob.Status.PROCESSING) {
+                job.setProgressPercent(percent);
+                job.setEtaSeconds(etaSeconds);
+                job.setEncodeSpeed(speed);
+            }
+        });
+    }
+
+    public boolean markCompleted(String jobId, String captionedVideoPath, String subtitlePath, String owner) {
+        LocalDateTime completedAt = LocalDateTime.now();
+        if (captionJobRepository.markCompleted(jobId, captionedVideoPath, subtitlePath, completedAt, owner) == 0) {
+            return leaseLost(jobId);
+        }
+        update(jobId, job -> {
+            job.setStatus(CaptionJob.Status.COMPLETED);
+            job.setCaptionedVideoPath(captionedVideoPath);
+            job.setSubtitlePath(subtitlePath);
+            job.setProgressPercent(100.0);
+            job.setEtaSeconds(0L);
+            job.setCompletedAt(completedAt);
+            clearLease(job);
+        });
+        return true;
+    }
+
+    public boolean markFailed(String jobId, String errorMessage, String owner) {
+        LocalDateTime completedAt = LocalDateTime.now();
+        if (captionJobRepository.markFailed(jobId, errorMessage, completedAt, owner) == 0) {
+            return leaseLost(jobId);
+        }
+        update(jobId, job -> {
+            job.setStatus(CaptionJob.Status.FAILED);
+            job.setErrorMessage(errorMessage);
+            job.setCompletedAt(completedAt);
+            clearLease(job);
+        });
+        return true;
+    }
+
+    public void markOutputsEvicted(String jobId, LocalDateTime evictedAt) {
+        captionJobRepository.markOutputsEvicted(jobId, evictedAt);
+        update(jobId, job -> job.setOutputsEvictedAt(evictedAt));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void update(String jobId, Consumer<CaptionJob> change) {
+        Entry updated = entries.computeIfPresent(jobId, (id, entry) -> {
+            CaptionJob copy = copyOf(entry.job);
+            change.accept(copy);
+            return new Entry(copy, expiryFor(copy));
+        });
+        if (updated == null) {
+            // Evicted or never cached; the next read reloads the persisted state
+            logger.fine("Caption job " + jobId + " was not cached during update");
+        }
+    }
+
+    private void cache(CaptionJob job) {
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(job.getId(), new Entry(job, expiryFor(job)));
+    }
+
+    // Drops expired jobs first, then the finished jobs closest to expiry. Running jobs are never
+    // evicted; admission control already bounds how many of them there can be.
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        int excess = entries.size() - maxEntries + 1;
+        if (excess <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+                .filter(e -> e.getValue().expiresAtMillis > 0)
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAtMillis))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(entries::remove);
+    }
+
+    // The node holding the lease now owns the job's state; read it from the database from here on
+    private boolean leaseLost(String jobId) {
+        entries.remove(jobId);
+        return false;
+    }
+
+    private static void clearLease(CaptionJob job) {
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        job.setStagedPath(null);
+    }
+
+    private long expiryFor(CaptionJob job) {
+        boolean terminal = job.getStatus() == CaptionJob.Status.COMPLETED || job.getStatus() == CaptionJob.Status.FAILED;
+        return terminal ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(terminalTtlSeconds) : 0;
+    }
+
+    private static CaptionJob copyOf(CaptionJob source) {
+        CaptionJob copy = new CaptionJob();
+        copy.setId(source.getId());
+        copy.setStatus(source.getStatus());
+        copy.setOriginalFileName(source.getOriginalFileName());
+        copy.setCaptionedVideoPath(source.getCaptionedVideoPath());
+        copy.setFontStyle(source.getFontStyle());
+        copy.setOutputMode(source.getOutputMode());
+        copy.setSidecarVtt(source.isSidecarVtt());
+        copy.setEncodingProfile(source.getEncodingProfile());
+        copy.setSubtitlePath(source.getSubtitlePath());
+        copy.setStagedPath(source.getStagedPath());
+        copy.setStagedContentType(source.getStagedContentType());
+        copy.setStagedContentHash(source.getStagedContentHash());
+        copy.setLeaseOwner(source.getLeaseOwner());
+        copy.setLeaseExpiresAt(source.getLeaseExpiresAt());
+        copy.setAttempts(source.getAttempts());
+        copy.setBatchId(source.getBatchId());
+        copy.setBatchPosition(source.getBatchPosition());
+        copy.setQueueRank(source.getQueueRank());
+        copy.setProgressPercent(source.getProgressPercent());
+        copy.setEtaSeconds(source.getEtaSeconds());
+        copy.setEncodeSpeed(source.getEncodeSpeed());
+        copy.setErrorMessage(source.getErrorMessage());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setCompletedAt(source.getCompletedAt());
+        copy.setOutputsEvictedAt(source.getOutputsEvictedAt());
+        return copy;
+    }
+}
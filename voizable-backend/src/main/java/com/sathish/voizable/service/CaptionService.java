@@ -1,11 +1,14 @@
 package com.sathish.voizable.service;
 
+import com.sathish.voizable.config.EncodingProperties;
 import com.sathish.voizable.model.CaptionJob;
+import com.sathish.voizable.model.OutputArtifact;
 import com.sathish.voizable.model.Transcription;
-import com.sathish.voizable.repository.CaptionJobRepository;
+import com.sathish.voizable.util.SrtUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -14,14 +17,21 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
 public class CaptionService {
     private static final Logger logger = Logger.getLogger(CaptionService.class.getName());
 
+    public static final String JOB_ID_MDC_KEY = "jobId";
+
     @Autowired
     private TranscriptionService transcriptionService;
 
@@ -29,94 +39,346 @@ public class CaptionService {
     private FFmpegService ffmpegService;
 
     @Autowired
-    private CaptionJobRepository captionJobRepository;
+    private CaptionJobStore captionJobStore;
+
+    @Autowired
+    private CaptionJobScheduler captionJobScheduler;
+
+    @Autowired
+    private CaptionJobQueue captionJobQueue;
+
+    @Autowired
+    private StagingStore stagingStore;
+
+    @Autowired
+    private EncodingProperties encodingProperties;
+
+    @Autowired
+    private JobEventBus jobEventBus;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private OutputArtifactManager outputArtifactManager;
+
+    @Autowired
+    private FileJanitor fileJanitor;
 
     @Value("${uploads.dir}")
     private String uploadsDir;
 
-    @Value("${app.cleanup.max-retries:5}")
-    private int cleanupMaxRetries;
+    // Minimum gap between progress writes for one job; FFmpeg reports roughly twice a second
+    @Value("${ffmpeg.progress.persist-interval-ms:2000}")
+    private long progressPersistIntervalMs;
+
+    // Jobs another node took over while they were running here, and the worker running each job's
+    // current stage so it can be interrupted
+    private final Set<String> lostLeases = ConcurrentHashMap.newKeySet();
+    private final Map<String, Thread> activeStages = new ConcurrentHashMap<>();
+
+    private static class LeaseLostException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        LeaseLostException(String jobId) {
+            super("Job " + jobId + " was taken over by another node");
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        captionJobQueue.start(this::resumeClaimedJob, this::onLeaseLost);
+    }
 
-    @Value("${app.cleanup.initial-delay:100}")
-    private long cleanupInitialDelay;
+    public CaptionJob startCaptioningJob(MultipartFile videoFile, String fontStyle, String encodingProfile,
+                                         CaptionJob.OutputMode outputMode, boolean sidecarVtt) {
+        return startCaptioningJob(videoFile.getOriginalFilename(), fontStyle, encodingProfile, outputMode, sidecarVtt);
+    }
 
-    public CaptionJob startCaptioningJob(MultipartFile videoFile) {
+    public CaptionJob startCaptioningJob(String originalFileName, String fontStyle, String encodingProfile,
+                                         CaptionJob.OutputMode outputMode, boolean sidecarVtt) {
         CaptionJob job = new CaptionJob();
-        job.setOriginalFileName(videoFile.getOriginalFilename());
-        return captionJobRepository.save(job);
+        job.setOriginalFileName(originalFileName);
+        job.setFontStyle(fontStyle);
+        job.setEncodingProfile(encodingProfile);
+        job.setOutputMode(outputMode);
+        job.setSidecarVtt(sidecarVtt);
+        return captionJobStore.create(job);
     }
 
-    @Async
-    public void generateCaptionedVideo(MultipartFile videoFile, String fontStyle, String jobId) {
-        CaptionJob job = captionJobRepository.findById(jobId)
-                .orElseThrow(() -> new IllegalStateException("Job not found with ID: " + jobId));
+    // Stages the upload exactly once while the request is still open, then queues the job on the
+    // scheduler. The job owns the staged file and the admission slot until it reaches a terminal state.
+    public void generateCaptionedVideo(MultipartFile videoFile, String jobId,
+                                       CaptionJobScheduler.Admission admission) throws IOException {
+        generateCaptionedVideo(stagingStore.stage(videoFile), jobId, admission);
+    }
 
-        job.setStatus(CaptionJob.Status.PROCESSING);
-        captionJobRepository.save(job);
+    // Queues a job for an upload that is already staged, e.g. a finished resumable upload. The job
+    // takes over the caller's reference to it.
+    public void generateCaptionedVideo(StagedUpload upload, String jobId, CaptionJobScheduler.Admission admission) {
+        try {
+            // Lease the job to this node; if it dies before finishing, another node picks the job up
+            captionJobQueue.track(jobId);
+            captionJobStore.assignStaged(jobId, upload, captionJobQueue.getNodeId(), captionJobQueue.newLeaseExpiry());
+            captionJobScheduler.submitTranscription(admission, () -> runTranscriptionStage(upload, jobId, admission));
+        } catch (RuntimeException e) {
+            captionJobQueue.untrack(jobId);
+            upload.release();
+            throw e;
+        }
+    }
 
-        File srtFile = null;
-        File originalVideoFile = null;
+    // Runs a job claimed from the work queue: one that another node, or an earlier run of this one,
+    // started but never finished. It starts over from the staged upload.
+    private void resumeClaimedJob(CaptionJob job, CaptionJobScheduler.Admission admission) {
+        logger.info("Claimed caption job " + job.getId() + " from the work queue (attempt " + job.getAttempts() + ")");
+        captionJobStore.refresh(job);
+        StagedUpload upload;
+        try {
+            upload = stagingStore.adopt(Paths.get(job.getStagedPath()), job.getOriginalFileName(),
+                    job.getStagedContentType(), job.getStagedContentHash()).orElse(null);
+        } catch (IOException e) {
+            upload = null;
+        }
+        if (upload == null) {
+            failJob(job, job.getId(), new IOException("The staged upload is no longer available: " + job.getStagedPath()));
+            finishJob(job, admission, null, null);
+            return;
+        }
+        StagedUpload staged = upload;
+        try {
+            captionJobScheduler.submitTranscription(admission, () -> runTranscriptionStage(staged, job.getId(), admission));
+        } catch (RuntimeException e) {
+            staged.release();
+            throw e;
+        }
+    }
+
+    // Another node holds the job now: stop working on it, leaving its state and staged upload alone.
+    private void onLeaseLost(String jobId) {
+        lostLeases.add(jobId);
+        // Atomic with leaveStage, so a worker that already moved on to another job is never interrupted
+        activeStages.computeIfPresent(jobId, (id, worker) -> {
+            worker.interrupt();
+            return worker;
+        });
+    }
+
+    private void enterStage(String jobId) {
+        activeStages.put(jobId, Thread.currentThread());
+        if (lostLeases.contains(jobId)) {
+            throw new LeaseLostException(jobId);
+        }
+    }
 
+    private void leaveStage(String jobId) {
+        activeStages.remove(jobId, Thread.currentThread());
+        if (lostLeases.contains(jobId)) {
+            // Do not carry a cancellation into the next job on this worker
+            Thread.interrupted();
+        }
+    }
+
+    private void runTranscriptionStage(StagedUpload upload, String jobId, CaptionJobScheduler.Admission admission) {
+        CaptionJob job = null;
+        File srtFile = null;
+        // Tags every log line from this worker with the job, including the JUL loggers bridged to SLF4J
+        MDC.put(JOB_ID_MDC_KEY, jobId);
+        upload.retain();
         try {
+            enterStage(jobId);
+            job = captionJobStore.find(jobId)
+                    .orElseThrow(() -> new IllegalStateException("Job not found with ID: " + jobId));
+
+            if (!captionJobStore.markProcessing(jobId, captionJobQueue.getNodeId())) {
+                throw new LeaseLostException(jobId);
+            }
+            job.setStatus(CaptionJob.Status.PROCESSING);
+            jobEventBus.publish(jobId, JobEventBus.STATUS_EVENT, describeJob(job), false);
+
             // This reuses your existing transcription logic to get the SRT content
-            Transcription transcription = transcriptionService.transcribeAndSave(videoFile);
+            Transcription transcription = transcriptionService.transcribeAndSave(upload);
             String srtContent = transcription.getSrtContent();
 
-            Path uploadsPath = Paths.get(uploadsDir);
-            String srtFileName = UUID.randomUUID().toString() + ".srt";
-            Path srtPath = uploadsPath.resolve(srtFileName);
+            Path srtPath = Paths.get(uploadsDir).resolve(UUID.randomUUID().toString() + ".srt");
             Files.writeString(srtPath, srtContent);
             srtFile = srtPath.toFile();
 
-            String videoFileName = UUID.randomUUID().toString() + "_" + videoFile.getOriginalFilename();
-            Path videoPath = uploadsPath.resolve(videoFileName);
-            videoFile.transferTo(videoPath);
-            originalVideoFile = videoPath.toFile();
+            CaptionJob transcribedJob = job;
+            File transcribedSrt = srtFile;
+            if (job.getOutputMode() == CaptionJob.OutputMode.SOFT) {
+                // Muxing only copies streams, so it is cheap enough to finish on this worker
+                runOutputStage(transcribedJob, upload, transcribedSrt, admission);
+            } else {
+                // Hand the encode over to the encoding pool so transcription workers stay free
+                captionJobScheduler.submitEncoding(admission,
+                        () -> runOutputStage(transcribedJob, upload, transcribedSrt, admission));
+            }
+        } catch (Exception e) {
+            failJob(job, jobId, e);
+            captionJobQueue.untrack(jobId);
+            finishJob(job, admission, srtFile, upload);
+        } finally {
+            leaveStage(jobId);
+            upload.release();
+            MDC.remove(JOB_ID_MDC_KEY);
+        }
+    }
 
-            File captionedVideoFile = ffmpegService.burnSubtitles(originalVideoFile, srtFile, fontStyle);
+    private void runOutputStage(CaptionJob job, StagedUpload upload, File srtFile,
+                                CaptionJobScheduler.Admission admission) {
+        MDC.put(JOB_ID_MDC_KEY, job.getId());
+        upload.retain();
+        try {
+            enterStage(job.getId());
+            File videoFile = upload.getPath().toFile();
+            FFmpegProgressListener progressListener = progressRecorder(job.getId());
+            File captionedVideoFile = job.getOutputMode() == CaptionJob.OutputMode.SOFT
+                    ? pipelineMetrics.time(PipelineMetrics.SUBTITLE_MUX,
+                            () -> ffmpegService.muxSubtitles(videoFile, srtFile, progressListener))
+                    : burnWithProfile(job, videoFile, srtFile, progressListener);
 
-            // Save the final video's filename to the job record
-            job.setCaptionedVideoPath(captionedVideoFile.getName());
-            job.setStatus(CaptionJob.Status.COMPLETED);
+            Path subtitlePath = null;
+            if (job.isSidecarVtt()) {
+                subtitlePath = Paths.get(uploadsDir).resolve(captionedVideoFile.getName().replaceFirst("\\.mp4$", ".vtt"));
+                String vtt = SrtUtils.toWebVtt(SrtUtils.parse(Files.readString(srtFile.toPath())));
+                Files.writeString(subtitlePath, vtt);
+            }
 
+            // Save the final video's filename to the job record
+            String subtitleFileName = subtitlePath != null ? subtitlePath.getFileName().toString() : null;
+            if (!captionJobStore.markCompleted(job.getId(), captionedVideoFile.getName(), subtitleFileName,
+                    captionJobQueue.getNodeId())) {
+                // The node that took the job over writes its own outputs
+                fileJanitor.delete(captionedVideoFile.toPath(), "output of a job taken over by another node");
+                fileJanitor.delete(subtitlePath, "output of a job taken over by another node");
+                throw new LeaseLostException(job.getId());
+            }
+            outputArtifactManager.register(job.getId(), captionedVideoFile, OutputArtifact.Kind.VIDEO);
+            if (subtitlePath != null) {
+                outputArtifactManager.register(job.getId(), subtitlePath.toFile(), OutputArtifact.Kind.SUBTITLES);
+            }
         } catch (Exception e) {
-            logger.severe("Caption generation failed for job " + jobId + ": " + e.getMessage());
-            e.printStackTrace();
-            job.setStatus(CaptionJob.Status.FAILED);
-            job.setErrorMessage(e.getMessage());
+            failJob(job, job.getId(), e);
         } finally {
-            job.setCompletedAt(LocalDateTime.now());
-            captionJobRepository.save(job);
+            leaveStage(job.getId());
+            upload.release();
+            finishJob(job, admission, srtFile, upload);
+            MDC.remove(JOB_ID_MDC_KEY);
+        }
+    }
 
-            // Clean up temporary files
-            if (srtFile != null) cleanupFileWithRetry(srtFile.toPath(), "SRT file");
-            if (originalVideoFile != null) cleanupFileWithRetry(originalVideoFile.toPath(), "Original video file");
+    // The body returned by the status endpoint and pushed to event stream subscribers.
+    public Map<String, Object> describeJob(CaptionJob job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", job.getStatus());
+        if (job.getStatus() == CaptionJob.Status.COMPLETED && job.getOutputsEvictedAt() != null) {
+            body.put("outputMode", job.getOutputMode());
+            body.put("outputsEvictedAt", job.getOutputsEvictedAt().toString());
+        } else if (job.getStatus() == CaptionJob.Status.COMPLETED) {
+            body.put("outputMode", job.getOutputMode());
+            body.put("previewUrl", "/api/captions/preview/" + job.getCaptionedVideoPath());
+            body.put("downloadUrl", "/api/captions/download/" + job.getId());
+            if (job.getSubtitlePath() != null) {
+                body.put("subtitlesUrl", "/api/captions/subtitles/" + job.getId());
+            }
+        } else if (job.getStatus() == CaptionJob.Status.PROCESSING && job.getProgressPercent() != null) {
+            body.put("progressPercent", job.getProgressPercent());
+            if (job.getEtaSeconds() != null) {
+                body.put("etaSeconds", job.getEtaSeconds());
+            }
+            if (job.getEncodeSpeed() != null) {
+                body.put("encodeSpeed", job.getEncodeSpeed());
+            }
         }
+        return body;
+    }
+
+    // Pushes every encode progress update to subscribers and persists it for the status endpoint,
+    // at most once per interval apart from the final update.
+    private FFmpegProgressListener progressRecorder(String jobId) {
+        AtomicLong lastPersisted = new AtomicLong();
+        return progress -> {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("status", CaptionJob.Status.PROCESSING);
+            event.put("progressPercent", progress.getPercent());
+            event.put("etaSeconds", progress.getEtaSeconds());
+            event.put("encodeSpeed", progress.getSpeed());
+            jobEventBus.publish(jobId, JobEventBus.PROGRESS_EVENT, event, false);
+
+            long now = System.currentTimeMillis();
+            boolean finished = progress.getEtaSeconds() != null && progress.getEtaSeconds() == 0;
+            if (!finished && now - lastPersisted.get() < progressPersistIntervalMs) {
+                // Status reads are served from the cache, so keep it current between database writes
+                captionJobStore.updateProgress(jobId, progress.getPercent(), progress.getEtaSeconds(),
+                        progress.getSpeed() > 0 ? progress.getSpeed() : null, false);
+                return;
+            }
+            lastPersisted.set(now);
+            try {
+                captionJobStore.updateProgress(jobId, progress.getPercent(), progress.getEtaSeconds(),
+                        progress.getSpeed() > 0 ? progress.getSpeed() : null, true);
+            } catch (RuntimeException e) {
+                // Progress is best effort; never let it break the encode
+                logger.warning("Could not record progress for job " + jobId + ": " + e.getMessage());
+            }
+        };
+    }
+
+    private File burnWithProfile(CaptionJob job, File videoFile, File srtFile,
+                                 FFmpegProgressListener progressListener) throws IOException, InterruptedException {
+        EncodingProperties.Profile profile = encodingProperties.findProfile(job.getEncodingProfile())
+                .orElseThrow(() -> new IllegalStateException("Unknown encoding profile: " + job.getEncodingProfile()));
+        int threads = captionJobScheduler.encodeThreads(profile);
+        logger.info("Encoding job " + job.getId() + " with profile " + job.getEncodingProfile() + " on " + threads + " threads");
+        return pipelineMetrics.time(PipelineMetrics.SUBTITLE_BURN, () ->
+                ffmpegService.burnSubtitles(videoFile, srtFile, job.getFontStyle(), profile, threads, progressListener));
     }
 
-    private void cleanupFileWithRetry(Path filePath, String fileType) {
-        if (filePath == null || !Files.exists(filePath)) {
+    private void failJob(CaptionJob job, String jobId, Exception e) {
+        if (e instanceof LeaseLostException || lostLeases.contains(jobId)) {
+            lostLeases.add(jobId);
+            logger.warning("Stopped caption job " + jobId + " on this node: another node has taken it over");
             return;
         }
-        long retryDelayMs = cleanupInitialDelay;
-        for (int i = 0; i < cleanupMaxRetries; i++) {
+        logger.log(Level.SEVERE, "Caption generation failed for job " + jobId, e);
+        pipelineMetrics.recordFailure("job", e);
+        if (job != null) {
             try {
-                Files.deleteIfExists(filePath);
-                logger.info("Successfully cleaned up " + fileType + ": " + filePath.getFileName());
-                return;
-            } catch (IOException e) {
-                if (i == cleanupMaxRetries - 1) {
-                    logger.warning("Failed to clean up " + fileType + " after " + cleanupMaxRetries + " attempts: " + filePath.getFileName());
-                } else {
-                    try {
-                        Thread.sleep(retryDelayMs);
-                        retryDelayMs *= 2;
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        return;
-                    }
+                if (!captionJobStore.markFailed(jobId, e.getMessage(), captionJobQueue.getNodeId())) {
+                    lostLeases.add(jobId);
                 }
+            } catch (RuntimeException updateError) {
+                logger.severe("Could not mark job " + jobId + " as failed: " + updateError.getMessage());
+            }
+        }
+    }
+
+    private void finishJob(CaptionJob job, CaptionJobScheduler.Admission admission, File srtFile, StagedUpload upload) {
+        boolean leaseLost = job != null && lostLeases.remove(job.getId());
+        try {
+            // A job taken over by another node finishes there, with its own events and metrics
+            if (job != null && !leaseLost) {
+                captionJobStore.find(job.getId()).ifPresent(finished -> {
+                    jobEventBus.publish(finished.getId(), JobEventBus.STATUS_EVENT, describeJob(finished), true);
+                    pipelineMetrics.recordJob(finished.getOutputMode().name().toLowerCase(),
+                            finished.getStatus() == CaptionJob.Status.COMPLETED,
+                            System.currentTimeMillis() - admission.getAdmittedAtMillis());
+                });
             }
+        } finally {
+            if (job != null) {
+                captionJobQueue.untrack(job.getId());
+            }
+            captionJobScheduler.release(admission);
+            // Queued batch items can use the slot straight away
+            captionJobQueue.wakeUp();
+
+            // Drop the job's reference to the staged upload and clean up temporary files. The staged
+            // upload of a job taken over by another node is still being read there.
+            if (upload != null && leaseLost) stagingStore.detach(upload);
+            if (upload != null) upload.release();
+            if (srtFile != null) fileJanitor.delete(srtFile.toPath(), "SRT file");
         }
     }
 }
@@ -0,0 +1,256 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.config.WorkerThreads;
+import com.sathish.voizable.dto.SubtitleCue;
+import com.sathish.voizable.dto.TranscriptionResponseDTO;
+import com.sathish.voizable.util.BoundedExecutor;
+import com.sathish.voizable.util.SrtUtils;
+import com.sathish.voizable.util.WavUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+// Splits a raw PCM stream into overlapping windows, transcribes them concurrently and stitches
+// the returned SRT fragments back into one transcript.
+//
+// Each window runs from its start to a cut point (chosen at the quietest frame near the nominal
+// window length) plus a trailing overlap, so words straddling the cut still reach Whisper intact.
+// A window "owns" the cues that start before its cut; cues the next window returns for the same
+// span are dropped when merging.
+@Component
+public class ChunkedTranscriptionEngine {
+
+    private static final Logger logger = Logger.getLogger(ChunkedTranscriptionEngine.class.getName());
+
+    // FFmpegService.openPcmPipe produces 16 kHz mono signed 16-bit little-endian samples
+    private static final int SAMPLE_RATE = WavUtils.SAMPLE_RATE;
+    private static final int BYTES_PER_SAMPLE = WavUtils.BYTES_PER_SAMPLE;
+    private static final int BYTES_PER_SECOND = WavUtils.BYTES_PER_SECOND;
+    // Silence detection looks at 20 ms frames
+    private static final int FRAME_BYTES = SAMPLE_RATE / 50 * BYTES_PER_SAMPLE;
+
+    @Autowired
+    private AiServiceClient aiServiceClient;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${transcription.chunking.window-seconds:120}")
+    private int windowSeconds;
+
+    @Value("${transcription.chunking.overlap-seconds:5}")
+    private int overlapSeconds;
+
+    @Value("${transcription.chunking.silence-search-seconds:10}")
+    private int silenceSearchSeconds;
+
+    @Value("${transcription.chunking.parallelism:4}")
+    private int parallelism;
+
+    private BoundedExecutor executor;
+    // Bounds how many PCM windows are buffered or in flight at once, across all requests
+    private Semaphore inFlightWindows;
+    // Bounds how many windows are being transcribed by the AI service at once
+    private Semaphore inFlightCalls;
+
+    private static class ChunkResult {
+        final long startMs;
+        final long cutMs;
+        final List<SubtitleCue> cues;
+
+        ChunkResult(long startMs, long cutMs, List<SubtitleCue> cues) {
+            this.startMs = startMs;
+            this.cutMs = cutMs;
+            this.cues = cues;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        executor = new BoundedExecutor(workerThreads.newUnboundedExecutor("transcription-chunk-"),
+                parallelism, new ConcurrentLinkedQueue<>());
+        inFlightWindows = new Semaphore(parallelism * 2);
+        inFlightCalls = new Semaphore(parallelism);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public TranscriptionResponseDTO transcribe(InputStream pcmStream) throws IOException, InterruptedException {
+        int windowBytes = alignToSample(windowSeconds * BYTES_PER_SECOND);
+        int overlapBytes = alignToSample(overlapSeconds * BYTES_PER_SECOND);
+        int searchBytes = alignToSample(Math.min(silenceSearchSeconds, windowSeconds / 2) * BYTES_PER_SECOND);
+
+        byte[] buffer = new byte[windowBytes + overlapBytes];
+        int filled = 0;
+        long bufferStartByte = 0;
+        List<CompletableFuture<ChunkResult>> chunks = new ArrayList<>();
+
+        try {
+            while (true) {
+                int read = pcmStream.readNBytes(buffer, filled, buffer.length - filled);
+                filled += read;
+                boolean endOfStream = filled < buffer.length;
+
+                if (endOfStream) {
+                    // Whatever is left becomes the final window, which owns everything after its start
+                    if (filled >= FRAME_BYTES) {
+                        chunks.add(submit(Arrays.copyOf(buffer, alignToSample(filled)), bufferStartByte, Long.MAX_VALUE));
+                    }
+                    break;
+                }
+
+                int cut = findQuietestCut(buffer, windowBytes - searchBytes, windowBytes);
+                long cutMs = toMillis(bufferStartByte + cut);
+                chunks.add(submit(Arrays.copyOf(buffer, cut + overlapBytes), bufferStartByte, cutMs));
+
+                // The next window starts at the cut, so the overlap region is carried over
+                System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+                filled -= cut;
+                bufferStartByte += cut;
+            }
+
+            List<ChunkResult> results = new ArrayList<>(chunks.size());
+            for (CompletableFuture<ChunkResult> chunk : chunks) {
+                results.add(chunk.get());
+            }
+            logger.info("Chunked transcription finished with " + results.size() + " windows");
+            return merge(results);
+        } catch (ExecutionException e) {
+            throw new IOException("Chunked transcription failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(true));
+        }
+    }
+
+    private CompletableFuture<ChunkResult> submit(byte[] pcm, long startByte, long cutMs) throws InterruptedException {
+        inFlightWindows.acquire();
+        long startMs = toMillis(startByte);
+        CompletableFuture<ChunkResult> future;
+        try {
+            // Only the WAV encoding runs on the pool; the call itself is async, so no thread waits on it
+            future = CompletableFuture.<Resource>supplyAsync(() -> new ByteArrayResource(WavUtils.toWav(pcm)) {
+                        @Override
+                        public String getFilename() {
+                            return "chunk-" + startMs + ".wav";
+                        }
+                    }, executor)
+                    .thenCompose(this::transcribeGated)
+                    .thenApply(response -> new ChunkResult(startMs, cutMs, SrtUtils.parse(response.getSrtContent())));
+        } catch (RuntimeException e) {
+            inFlightWindows.release();
+            throw e;
+        }
+        // Released on success, failure or cancellation alike
+        future.whenComplete((result, error) -> inFlightWindows.release());
+        return future;
+    }
+
+    // Waits for a call slot before sending, so at most parallelism windows are at the AI service at once
+    private CompletableFuture<TranscriptionResponseDTO> transcribeGated(Resource audio) {
+        try {
+            inFlightCalls.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        CompletableFuture<TranscriptionResponseDTO> call;
+        try {
+            call = aiServiceClient.transcribeAsync(audio);
+        } catch (RuntimeException e) {
+            inFlightCalls.release();
+            throw e;
+        }
+        call.whenComplete((response, error) -> inFlightCalls.release());
+        return call;
+    }
+
+    // Rebases each window's cues onto the media timeline, keeps only the cues the window owns,
+    // drops repeated text across the seam and renumbers the result.
+    private TranscriptionResponseDTO merge(List<ChunkResult> results) {
+        List<SubtitleCue> merged = new ArrayList<>();
+        long ownedFromMs = 0;
+        for (ChunkResult result : results) {
+            for (SubtitleCue cue : result.cues) {
+                long startMs = cue.getStartMs() + result.startMs;
+                long endMs = cue.getEndMs() + result.startMs;
+                if (startMs < ownedFromMs || startMs >= result.cutMs) {
+                    continue;
+                }
+                if (!merged.isEmpty() && isDuplicate(merged.get(merged.size() - 1), startMs, cue.getText())) {
+                    continue;
+                }
+                merged.add(new SubtitleCue(merged.size() + 1, startMs, endMs, cue.getText()));
+            }
+            ownedFromMs = result.cutMs;
+        }
+
+        StringBuilder plainText = new StringBuilder();
+        for (SubtitleCue cue : merged) {
+            if (plainText.length() > 0) {
+                plainText.append(' ');
+            }
+            plainText.append(cue.getText().replace('\n', ' '));
+        }
+
+        TranscriptionResponseDTO response = new TranscriptionResponseDTO();
+        response.setPlainText(plainText.toString());
+        response.setSrtContent(SrtUtils.format(merged));
+        return response;
+    }
+
+    private boolean isDuplicate(SubtitleCue previous, long startMs, String text) {
+        return startMs < previous.getEndMs() && normalize(previous.getText()).equals(normalize(text));
+    }
+
+    private String normalize(String text) {
+        return text.toLowerCase().replaceAll("[^\\p{L}\\p{N}]+", " ").strip();
+    }
+
+    // Returns the byte offset of the 20 ms frame with the lowest energy in [from, to).
+    private int findQuietestCut(byte[] pcm, int from, int to) {
+        ByteBuffer samples = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN);
+        int bestOffset = to;
+        long bestEnergy = Long.MAX_VALUE;
+        for (int frame = alignToSample(from); frame + FRAME_BYTES <= to; frame += FRAME_BYTES) {
+            long energy = 0;
+            for (int i = frame; i < frame + FRAME_BYTES; i += BYTES_PER_SAMPLE) {
+                int sample = samples.getShort(i);
+                energy += (long) sample * sample;
+            }
+            if (energy < bestEnergy) {
+                bestEnergy = energy;
+                bestOffset = frame + FRAME_BYTES / 2;
+            }
+        }
+        return alignToSample(bestOffset);
+    }
+
+    private static int alignToSample(int bytes) {
+        return bytes - (bytes % BYTES_PER_SAMPLE);
+    }
+
+    private static long toMillis(long pcmBytes) {
+        return WavUtils.toMillis(pcmBytes);
+    }
+}
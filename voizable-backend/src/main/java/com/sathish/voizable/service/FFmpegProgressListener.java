@@ -0,0 +1,12 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.dto.EncodeProgress;
+
+// Receives progress updates from a running FFmpeg encode. Called on the output reader thread.
+@FunctionalInterface
+public interface FFmpegProgressListener {
+
+    FFmpegProgressListener NONE = progress -> { };
+
+    void onProgress(EncodeProgress progress);
+}
@@ -1,18 +1,32 @@
 package com.sathish.voizable.service;
 
+import com.sathish.voizable.config.EncodingProperties;
+import com.sathish.voizable.config.WorkerThreads;
+import com.sathish.voizable.dto.EncodeProgress;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.FileCopyUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class FFmpegService {
@@ -25,80 +39,278 @@ public class FFmpegService {
     @Value("${uploads.dir}")
     private String uploadsDir;
 
-    // Helper class to consume and capture the process output stream.
-    private static class StreamGobbler implements Runnable {
+    private static final Pattern DURATION = Pattern.compile("Duration: (\\d+):(\\d{2}):(\\d{2})\\.(\\d{2})");
+
+    // Live FFmpeg processes, sampled by the voizable.ffmpeg.running gauge
+    private final Set<Process> runningProcesses = ConcurrentHashMap.newKeySet();
+
+    // Only the tail of FFmpeg's log is kept for error reports
+    @Value("${ffmpeg.log-tail-lines:50}")
+    private int logTailLines;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Autowired
+    private FileJanitor fileJanitor;
+
+    // Threads that drain FFmpeg's stdout/stderr and feed its stdin; virtual in virtual-thread mode
+    private ThreadFactory ioThreads;
+
+    @PostConstruct
+    void init() {
+        ioThreads = workerThreads.threadFactory("ffmpeg-io-");
+    }
+
+    // Helper class to consume the process output stream, keeping only the last few lines.
+    static class StreamGobbler implements Runnable {
         private final InputStream inputStream;
-        private final StringBuilder outputBuffer = new StringBuilder();
+        private final int maxLines;
+        private final Deque<String> lines = new ArrayDeque<>();
+        private final Consumer<String> lineListener;
 
-        public StreamGobbler(InputStream inputStream) {
+        public StreamGobbler(InputStream inputStream, int maxLines) {
+            this(inputStream, maxLines, null);
+        }
+
+        public StreamGobbler(InputStream inputStream, int maxLines, Consumer<String> lineListener) {
             this.inputStream = inputStream;
+            this.maxLines = maxLines;
+            this.lineListener = lineListener;
         }
 
         @Override
         public void run() {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                reader.lines().forEach(line -> outputBuffer.append(line).append("\n"));
+                reader.lines().forEach(line -> {
+                    if (lineListener != null) {
+                        lineListener.accept(line);
+                    }
+                    synchronized (lines) {
+                        lines.addLast(line);
+                        if (lines.size() > maxLines) {
+                            lines.removeFirst();
+                        }
+                    }
+                });
             } catch (IOException e) {
                 logger.warning("Error reading process output: " + e.getMessage());
             }
         }
 
         public String getOutput() {
-            return outputBuffer.toString();
+            synchronized (lines) {
+                return String.join("\n", lines);
+            }
+        }
+    }
+
+    // Turns the key=value blocks FFmpeg writes with -progress into EncodeProgress updates. The
+    // input duration comes from the "Duration:" line FFmpeg prints on stderr when it opens the input.
+    static class ProgressParser {
+        private final FFmpegProgressListener listener;
+        private volatile long durationMs;
+        private long outTimeMs;
+        private double fps;
+        private double speed;
+
+        ProgressParser(FFmpegProgressListener listener) {
+            this.listener = listener;
+        }
+
+        void onLogLine(String line) {
+            if (durationMs > 0) {
+                return;
+            }
+            Matcher matcher = DURATION.matcher(line);
+            if (matcher.find()) {
+                durationMs = ((Long.parseLong(matcher.group(1)) * 60 + Long.parseLong(matcher.group(2))) * 60
+                        + Long.parseLong(matcher.group(3))) * 1000 + Long.parseLong(matcher.group(4)) * 10;
+            }
+        }
+
+        void onProgressLine(String line) {
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                return;
+            }
+            String key = line.substring(0, separator).trim();
+            String value = line.substring(separator + 1).trim();
+            try {
+                switch (key) {
+                    // Despite the name, out_time_ms is reported in microseconds
+                    case "out_time_ms" -> outTimeMs = Long.parseLong(value) / 1000;
+                    case "fps" -> fps = Double.parseDouble(value);
+                    case "speed" -> speed = value.endsWith("x") ? Double.parseDouble(value.substring(0, value.length() - 1)) : 0;
+                    case "progress" -> listener.onProgress(new EncodeProgress(
+                            "end".equals(value) ? Math.max(outTimeMs, durationMs) : outTimeMs, durationMs, fps, speed));
+                    default -> { }
+                }
+            } catch (NumberFormatException e) {
+                // FFmpeg reports N/A until it has a value
+            }
         }
     }
 
-    public File extractAudio(MultipartFile videoFile) throws IOException, InterruptedException {
+    public File extractAudio(Path videoPath) throws IOException, InterruptedException {
         Path uploadsPath = Paths.get(uploadsDir);
         if (!Files.exists(uploadsPath)) {
             Files.createDirectories(uploadsPath);
         }
 
-        String originalFileName = videoFile.getOriginalFilename();
-        Path tempVideoPath = uploadsPath.resolve(UUID.randomUUID().toString() + "_" + originalFileName);
-        File audioOutputFile = null;
+        String audioFileName = UUID.randomUUID().toString() + ".wav";
+        File audioOutputFile = uploadsPath.resolve(audioFileName).toFile();
+
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                ffmpegPath,
+                "-i", videoPath.toAbsolutePath().toString(),
+                "-vn",
+                "-acodec", "pcm_s16le",
+                "-ar", "16000",
+                "-ac", "1",
+                audioOutputFile.getAbsolutePath()
+        );
+
+        Process process = startProcess(processBuilder);
 
+        StreamGobbler errorGobbler = new StreamGobbler(process.getErrorStream(), logTailLines);
+        ioThreads.newThread(errorGobbler).start();
+
+        boolean finished;
         try {
-            videoFile.transferTo(tempVideoPath);
+            finished = process.waitFor(10, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            // The transcription was cancelled; stop FFmpeg and drop the half-written audio
+            process.destroyForcibly();
+            fileJanitor.delete(audioOutputFile.toPath(), "partial audio file");
+            throw e;
+        }
 
-            String audioFileName = UUID.randomUUID().toString() + ".wav";
-            audioOutputFile = uploadsPath.resolve(audioFileName).toFile();
+        if (!finished) {
+            process.destroyForcibly();
+            throw new IOException("FFmpeg process timed out after 10 minutes.");
+        }
 
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                    ffmpegPath,
-                    "-i", tempVideoPath.toAbsolutePath().toString(),
-                    "-vn",
-                    "-acodec", "pcm_s16le",
-                    "-ar", "16000",
-                    "-ac", "1",
-                    audioOutputFile.getAbsolutePath()
-            );
+        int exitCode = process.exitValue();
+        if (exitCode != 0) {
+            String ffmpegError = errorGobbler.getOutput();
+            throw new IOException("FFmpeg failed to extract audio. Exit code: " + exitCode + ". Error: " + ffmpegError);
+        }
 
-            Process process = processBuilder.start();
+        return audioOutputFile;
+    }
 
-            StreamGobbler errorGobbler = new StreamGobbler(process.getErrorStream());
-            new Thread(errorGobbler).start();
+    // A running FFmpeg process that writes 16 kHz mono audio to stdout, usually reading media from stdin.
+    public static class AudioPipe implements Closeable {
+        private final Process process;
+        private final StreamGobbler errorGobbler;
+        private final BufferedInputStream audioStream;
 
-            boolean finished = process.waitFor(10, TimeUnit.MINUTES);
+        private AudioPipe(Process process, StreamGobbler errorGobbler) {
+            this.process = process;
+            this.errorGobbler = errorGobbler;
+            this.audioStream = new BufferedInputStream(process.getInputStream());
+        }
 
+        public InputStream getAudioStream() {
+            return audioStream;
+        }
+
+        // Blocks until FFmpeg has produced its first byte of audio or exited without any.
+        // Inputs that need seeking (e.g. MP4 with the moov atom at the end) produce nothing on a pipe.
+        public boolean hasOutput() throws IOException {
+            audioStream.mark(1);
+            int firstByte = audioStream.read();
+            audioStream.reset();
+            return firstByte != -1;
+        }
+
+        public void awaitCompletion() throws IOException, InterruptedException {
+            boolean finished;
+            try {
+                finished = process.waitFor(10, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                throw e;
+            }
             if (!finished) {
                 process.destroyForcibly();
                 throw new IOException("FFmpeg process timed out after 10 minutes.");
             }
-
             int exitCode = process.exitValue();
             if (exitCode != 0) {
-                String ffmpegError = errorGobbler.getOutput();
-                throw new IOException("FFmpeg failed to extract audio. Exit code: " + exitCode + ". Error: " + ffmpegError);
+                throw new IOException("FFmpeg failed to extract audio. Exit code: " + exitCode + ". Error: " + errorGobbler.getOutput());
             }
+        }
 
-            return audioOutputFile;
-        } finally {
-            cleanupWithRetry(tempVideoPath);
+        @Override
+        public void close() {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+            try {
+                audioStream.close();
+            } catch (IOException e) {
+                logger.warning("Error closing FFmpeg audio stream: " + e.getMessage());
+            }
+        }
+    }
+
+    public AudioPipe openAudioPipe(InputStream mediaStream) throws IOException {
+        return startAudioPipe("pipe:0", mediaStream, "wav");
+    }
+
+    public AudioPipe openAudioPipe(Path mediaPath) throws IOException {
+        return startAudioPipe(mediaPath.toAbsolutePath().toString(), null, "wav");
+    }
+
+    // Raw 16 kHz mono s16le PCM, for callers that window the audio themselves.
+    public AudioPipe openPcmPipe(InputStream mediaStream) throws IOException {
+        return startAudioPipe("pipe:0", mediaStream, "s16le");
+    }
+
+    public AudioPipe openPcmPipe(Path mediaPath) throws IOException {
+        return startAudioPipe(mediaPath.toAbsolutePath().toString(), null, "s16le");
+    }
+
+    private AudioPipe startAudioPipe(String input, InputStream mediaStream, String outputFormat) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                ffmpegPath,
+                "-i", input,
+                "-vn",
+                "-acodec", "pcm_s16le",
+                "-ar", "16000",
+                "-ac", "1",
+                "-f", outputFormat,
+                "pipe:1"
+        );
+
+        Process process = startProcess(processBuilder);
+
+        StreamGobbler errorGobbler = new StreamGobbler(process.getErrorStream(), logTailLines);
+        ioThreads.newThread(errorGobbler).start();
+
+        if (mediaStream == null) {
+            process.getOutputStream().close();
+            return new AudioPipe(process, errorGobbler);
         }
+
+        // Feed the upload into FFmpeg's stdin on a separate thread while the caller drains stdout
+        Thread feeder = ioThreads.newThread(() -> {
+            try (InputStream in = mediaStream; OutputStream stdin = process.getOutputStream()) {
+                in.transferTo(stdin);
+            } catch (IOException e) {
+                // FFmpeg closes stdin early once it has read what it needs; that is not an error
+                logger.fine("FFmpeg stdin closed: " + e.getMessage());
+            }
+        });
+        feeder.start();
+
+        return new AudioPipe(process, errorGobbler);
     }
 
-    public File burnSubtitles(File videoFile, File srtFile, String fontStyle) throws IOException, InterruptedException {
+    public File burnSubtitles(File videoFile, File srtFile, String fontStyle, EncodingProperties.Profile profile,
+                              int threads, FFmpegProgressListener listener) throws IOException, InterruptedException {
         Path uploadsPath = Paths.get(uploadsDir);
         String captionedVideoFileName = "captioned_" + UUID.randomUUID().toString() + ".mp4";
         File captionedVideoFile = uploadsPath.resolve(captionedVideoFileName).toFile();
@@ -125,107 +337,149 @@ public class FFmpegService {
                 FileCopyUtils.copy(inputStream, outputStream);
             }
 
-            // Normalize paths for Windows - Use forward slashes and escape colons properly
-            String srtPath = srtFile.getAbsolutePath().replace("\\", "/");
-            String fontPath = tempFontFile.getAbsolutePath().replace("\\", "/");
-
-            // For Windows paths, we need to escape the colon after drive letter
-            if (srtPath.contains(":")) {
-                srtPath = srtPath.replaceFirst(":", "\\\\:");
-            }
-            if (fontPath.contains(":")) {
-                fontPath = fontPath.replaceFirst(":", "\\\\:");
-            }
-
-            // Create the subtitle filter - simplified approach
-            String subtitleFilter = String.format(
-                    "subtitles='%s':force_style='FontFile=%s,FontSize=18,PrimaryColour=&HFFFFFF,OutlineColour=&H000000,Outline=1,Shadow=1'",
-                    srtPath, fontPath
-            );
+            String subtitleFilter = buildSubtitleFilter(srtFile, tempFontFile);
 
             logger.info("FFmpeg subtitle filter: " + subtitleFilter);
 
-            ProcessBuilder processBuilder = new ProcessBuilder(
+            List<String> command = new ArrayList<>(List.of(
                     ffmpegPath,
                     "-i", videoFile.getAbsolutePath(),
                     "-vf", subtitleFilter,
-                    "-c:a", "copy",
-                    "-y", // Overwrite output file if it exists
-                    captionedVideoFile.getAbsolutePath()
-            );
-
-            // Set working directory to uploads folder
-            processBuilder.directory(new File(uploadsDir));
+                    "-c:v", profile.getVideoCodec(),
+                    "-preset", profile.getPreset(),
+                    "-crf", String.valueOf(profile.getCrf()),
+                    "-threads", String.valueOf(threads),
+                    "-c:a", "copy"
+            ));
+            if (profile.isFaststart()) {
+                // Move the moov atom to the front so the preview can start before the download finishes
+                command.addAll(List.of("-movflags", "+faststart"));
+            }
+            command.add("-y"); // Overwrite output file if it exists
+            command.add(captionedVideoFile.getAbsolutePath());
 
             logger.info("Starting FFmpeg subtitle burn process...");
-            logger.info("Command: " + String.join(" ", processBuilder.command()));
+            runEncode(command, listener, 15, "burn subtitles");
+            logger.info("FFmpeg subtitle burn completed successfully.");
+            Thread.sleep(200); // Small delay to ensure file handles are released
 
-            Process process = processBuilder.start();
+            return captionedVideoFile;
+        } finally {
+            if (tempFontFile != null) {
+                fileJanitor.delete(tempFontFile.toPath(), "temporary font file");
+            }
+        }
+    }
 
-            StreamGobbler outputGobbler = new StreamGobbler(process.getInputStream());
-            StreamGobbler errorGobbler = new StreamGobbler(process.getErrorStream());
+    // Builds the -vf subtitles filter with the given font, escaped for FFmpeg's filter syntax.
+    static String buildSubtitleFilter(File srtFile, File fontFile) {
+        // Normalize paths for Windows - Use forward slashes and escape colons properly
+        String srtPath = srtFile.getAbsolutePath().replace("\\", "/");
+        String fontPath = fontFile.getAbsolutePath().replace("\\", "/");
 
-            Thread outputThread = new Thread(outputGobbler);
-            Thread errorThread = new Thread(errorGobbler);
+        // For Windows paths, we need to escape the colon after drive letter
+        if (srtPath.contains(":")) {
+            srtPath = srtPath.replaceFirst(":", "\\\\:");
+        }
+        if (fontPath.contains(":")) {
+            fontPath = fontPath.replaceFirst(":", "\\\\:");
+        }
 
-            outputThread.start();
-            errorThread.start();
+        // Create the subtitle filter - simplified approach
+        return String.format(
+                "subtitles='%s':force_style='FontFile=%s,FontSize=18,PrimaryColour=&HFFFFFF,OutlineColour=&H000000,Outline=1,Shadow=1'",
+                srtPath, fontPath
+        );
+    }
 
-            boolean finished = process.waitFor(15, TimeUnit.MINUTES);
+    // Adds the SRT as a mov_text subtitle track without re-encoding audio or video.
+    public File muxSubtitles(File videoFile, File srtFile, FFmpegProgressListener listener) throws IOException, InterruptedException {
+        Path uploadsPath = Paths.get(uploadsDir);
+        String captionedVideoFileName = "captioned_" + UUID.randomUUID().toString() + ".mp4";
+        File captionedVideoFile = uploadsPath.resolve(captionedVideoFileName).toFile();
 
-            // Wait for threads to finish
-            outputThread.join(2000);
-            errorThread.join(2000);
+        List<String> command = List.of(
+                ffmpegPath,
+                "-i", videoFile.getAbsolutePath(),
+                "-i", srtFile.getAbsolutePath(),
+                "-map", "0:v?",
+                "-map", "0:a?",
+                "-map", "1:0",
+                "-c:v", "copy",
+                "-c:a", "copy",
+                "-c:s", "mov_text",
+                "-disposition:s:0", "default",
+                "-movflags", "+faststart",
+                "-y", // Overwrite output file if it exists
+                captionedVideoFile.getAbsolutePath()
+        );
+
+        logger.info("Starting FFmpeg subtitle mux process...");
+        runEncode(command, listener, 5, "mux subtitles");
+        logger.info("FFmpeg subtitle mux completed successfully.");
+        return captionedVideoFile;
+    }
 
-            if (!finished) {
-                process.destroyForcibly();
-                throw new IOException("FFmpeg subtitle process timed out.");
-            }
+    // Runs an FFmpeg encode with machine-readable progress on stdout and the log on stderr.
+    private void runEncode(List<String> command, FFmpegProgressListener listener, long timeoutMinutes,
+                           String action) throws IOException, InterruptedException {
+        List<String> fullCommand = new ArrayList<>(command);
+        fullCommand.addAll(1, List.of("-progress", "pipe:1", "-nostats"));
 
-            int exitCode = process.exitValue();
-            if (exitCode != 0) {
-                String output = outputGobbler.getOutput();
-                String error = errorGobbler.getOutput();
-                logger.severe("FFmpeg failed. Output: " + output);
-                logger.severe("FFmpeg failed. Error: " + error);
-                throw new IOException("FFmpeg failed to burn subtitles. Exit code: " + exitCode +
-                        ". Output: " + output + ". Error: " + error);
-            }
+        ProcessBuilder processBuilder = new ProcessBuilder(fullCommand);
 
-            logger.info("FFmpeg subtitle burn completed successfully.");
-            Thread.sleep(200); // Small delay to ensure file handles are released
+        // Set working directory to uploads folder
+        processBuilder.directory(new File(uploadsDir));
 
-            return captionedVideoFile;
-        } finally {
-            if (tempFontFile != null) {
-                cleanupWithRetry(tempFontFile.toPath());
-            }
+        logger.info("Command: " + String.join(" ", processBuilder.command()));
+
+        Process process = startProcess(processBuilder);
+
+        ProgressParser progressParser = new ProgressParser(listener != null ? listener : FFmpegProgressListener.NONE);
+        StreamGobbler outputGobbler = new StreamGobbler(process.getInputStream(), logTailLines, progressParser::onProgressLine);
+        StreamGobbler errorGobbler = new StreamGobbler(process.getErrorStream(), logTailLines, progressParser::onLogLine);
+
+        Thread outputThread = ioThreads.newThread(outputGobbler);
+        Thread errorThread = ioThreads.newThread(errorGobbler);
+
+        outputThread.start();
+        errorThread.start();
+
+        boolean finished;
+        try {
+            finished = process.waitFor(timeoutMinutes, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            // The job was cancelled; do not leave the encode running
+            process.destroyForcibly();
+            throw e;
         }
-    }
 
-    private void cleanupWithRetry(Path filePath) {
-        if (filePath == null || !Files.exists(filePath)) {
-            return;
+        // Wait for threads to finish
+        outputThread.join(2000);
+        errorThread.join(2000);
+
+        if (!finished) {
+            process.destroyForcibly();
+            throw new IOException("FFmpeg process timed out while trying to " + action + ".");
         }
-        int maxRetries = 3;
-        for (int i = 0; i < maxRetries; i++) {
-            try {
-                Files.deleteIfExists(filePath);
-                logger.info("Successfully cleaned up: " + filePath.getFileName());
-                return;
-            } catch (IOException e) {
-                if (i == maxRetries - 1) {
-                    logger.warning("Failed to clean up file after " + maxRetries + " attempts: " +
-                            filePath.getFileName());
-                } else {
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        return;
-                    }
-                }
-            }
+
+        int exitCode = process.exitValue();
+        if (exitCode != 0) {
+            String error = errorGobbler.getOutput();
+            logger.severe("FFmpeg failed to " + action + ". Error: " + error);
+            throw new IOException("FFmpeg failed to " + action + ". Exit code: " + exitCode + ". Error: " + error);
         }
     }
+
+    public int getRunningProcessCount() {
+        runningProcesses.removeIf(process -> !process.isAlive());
+        return runningProcesses.size();
+    }
+
+    private Process startProcess(ProcessBuilder processBuilder) throws IOException {
+        Process process = processBuilder.start();
+        runningProcesses.add(process);
+        process.onExit().thenRun(() -> runningProcesses.remove(process));
+        return process;
+    }
 }
@@ -0,0 +1,103 @@
+package com.sathish.voizable.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Deletes files without blocking the caller. The first attempt runs inline; if the file is still
+// held open (FFmpeg or a download on Windows), retries with exponential backoff run on the janitor
+// thread instead of sleeping on a pipeline worker.
+@Component
+public class FileJanitor {
+
+    private static final Logger logger = Logger.getLogger(FileJanitor.class.getName());
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${app.cleanup.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${app.cleanup.initial-delay:100}")
+    private long initialDelayMs;
+
+    private ScheduledExecutorService janitor;
+    private final AtomicInteger pendingDeletes = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        janitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-janitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        janitor.shutdownNow();
+    }
+
+    public void delete(Path path, String description) {
+        if (path == null) {
+            return;
+        }
+        if (!attempt(path, description, 1)) {
+            pendingDeletes.incrementAndGet();
+            janitor.schedule(() -> retry(path, description, 2, initialDelayMs), initialDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Runs periodic housekeeping on the janitor thread, so it never overlaps with pending deletes.
+    public void scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        janitor.scheduleWithFixedDelay(task, initialDelay, delay, unit);
+    }
+
+    public void execute(Runnable task) {
+        janitor.execute(task);
+    }
+
+    public int getPendingDeleteCount() {
+        return pendingDeletes.get();
+    }
+
+    private void retry(Path path, String description, int attemptNumber, long lastDelayMs) {
+        if (attempt(path, description, attemptNumber)) {
+            pendingDeletes.decrementAndGet();
+        } else if (attemptNumber >= maxRetries) {
+            pendingDeletes.decrementAndGet();
+            logger.warning("Failed to clean up " + description + " after " + maxRetries + " attempts: " + path.getFileName());
+        } else {
+            long delayMs = lastDelayMs * 2;
+            janitor.schedule(() -> retry(path, description, attemptNumber + 1, delayMs), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean attempt(Path path, String description, int attemptNumber) {
+        long startNanos = System.nanoTime();
+        try {
+            if (Files.deleteIfExists(path)) {
+                logger.info("Successfully cleaned up " + description + ": " + path.getFileName());
+            }
+            return true;
+        } catch (IOException e) {
+            if (attemptNumber == 1) {
+                logger.fine("Could not delete " + description + " yet, retrying in the background: " + e.getMessage());
+            }
+            return false;
+        } finally {
+            pipelineMetrics.recordCleanup(System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.sathish.voizable.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// In-process fan-out of caption job updates to Server-Sent Event subscribers. Each job keeps a short
+// history so a client that reconnects with Last-Event-ID gets what it missed without hitting the
+// database. Channels are dropped a while after the job reaches a terminal state.
+@Component
+public class JobEventBus {
+
+    private static final Logger logger = Logger.getLogger(JobEventBus.class.getName());
+
+    public static final String STATUS_EVENT = "status";
+    public static final String PROGRESS_EVENT = "progress";
+
+    private static class JobEvent {
+        private final long id;
+        private final String name;
+        private final Map<String, Object> data;
+
+        JobEvent(long id, String name, Map<String, Object> data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static class Channel {
+        private final Deque<JobEvent> history = new ArrayDeque<>();
+        private final List<SseEmitter> emitters = new ArrayList<>();
+        // Latest status event, kept even after progress events push it out of the history
+        private JobEvent lastStatus;
+        private long closedAtMillis;
+    }
+
+    @Value("${jobs.events.history-size:32}")
+    private int historySize;
+
+    @Value("${jobs.events.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${jobs.events.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${jobs.events.retention-seconds:300}")
+    private long retentionSeconds;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    void init() {
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-events-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        channels.values().forEach(channel -> {
+            List<SseEmitter> open;
+            synchronized (channel) {
+                open = new ArrayList<>(channel.emitters);
+                channel.emitters.clear();
+            }
+            open.forEach(SseEmitter::complete);
+        });
+    }
+
+    // Records an update for the job and pushes it to every open subscriber. A terminal update
+    // completes the open streams once it has been delivered.
+    public void publish(String jobId, String name, Map<String, Object> data, boolean terminal) {
+        append(jobId, name, data, terminal);
+    }
+
+    public boolean hasChannel(String jobId) {
+        return channels.containsKey(jobId);
+    }
+
+    // Opens a stream for the job. Events newer than lastEventId are replayed first; if the bus has no
+    // record of the job, for example after a restart, the snapshot supplies its current status.
+    public SseEmitter subscribe(String jobId, Long lastEventId, Supplier<Map<String, Object>> snapshot,
+                                boolean snapshotIsTerminal) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Channel channel = channels.get(jobId);
+        if (channel == null) {
+            if (snapshot == null) {
+                // The channel was evicted after the caller checked for it
+                emitter.complete();
+                return emitter;
+            }
+            channel = append(jobId, STATUS_EVENT, snapshot.get(), snapshotIsTerminal);
+        }
+
+        synchronized (channel) {
+            long after = lastEventId != null && lastEventId <= sequence.get() ? lastEventId : 0;
+            JobEvent oldest = channel.history.peekFirst();
+            if (channel.lastStatus != null && channel.lastStatus.id > after
+                    && (oldest == null || channel.lastStatus.id < oldest.id)) {
+                // The client missed more than the history holds; start it from the latest status
+                if (!send(emitter, channel.lastStatus)) {
+                    return emitter;
+                }
+            }
+            for (JobEvent event : channel.history) {
+                if (event.id > after && !send(emitter, event)) {
+                    return emitter;
+                }
+            }
+            if (channel.closedAtMillis > 0) {
+                emitter.complete();
+                return emitter;
+            }
+            channel.emitters.add(emitter);
+        }
+
+        Channel subscribed = channel;
+        Runnable remove = () -> {
+            synchronized (subscribed) {
+                subscribed.emitters.remove(emitter);
+            }
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return channels.values().stream().mapToInt(channel -> {
+            synchronized (channel) {
+                return channel.emitters.size();
+            }
+        }).sum();
+    }
+
+    private Channel append(String jobId, String name, Map<String, Object> data, boolean terminal) {
+        Channel channel = channels.computeIfAbsent(jobId, id -> new Channel());
+        List<SseEmitter> toComplete;
+        synchronized (channel) {
+            JobEvent event = new JobEvent(sequence.incrementAndGet(), name, data);
+            channel.history.addLast(event);
+            if (channel.history.size() > historySize) {
+                channel.history.removeFirst();
+            }
+            if (STATUS_EVENT.equals(name)) {
+                channel.lastStatus = event;
+            }
+            channel.emitters.removeIf(emitter -> !send(emitter, event));
+            if (!terminal) {
+                return channel;
+            }
+            channel.closedAtMillis = System.currentTimeMillis();
+            toComplete = new ArrayList<>(channel.emitters);
+            channel.emitters.clear();
+        }
+        toComplete.forEach(SseEmitter::complete);
+        return channel;
+    }
+
+    // Keeps idle connections open through proxies and drops channels for long-finished jobs.
+    private void heartbeat() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(retentionSeconds);
+        channels.entrySet().removeIf(entry -> {
+            Channel channel = entry.getValue();
+            synchronized (channel) {
+                channel.emitters.removeIf(emitter -> !sendComment(emitter));
+                return channel.closedAtMillis > 0 && channel.closedAtMillis < cutoff;
+            }
+        });
+    }
+
+    private boolean send(SseEmitter emitter, JobEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.id))
+                    .name(event.name)
+                    .data(event.data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // The container reports the broken connection through the emitter's own callbacks
+            logger.fine("Dropping job event subscriber: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean sendComment(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.config.WorkerThreads;
+import com.sathish.voizable.util.WavUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+// Opens and tracks live captioning sessions. Raw PCM goes straight into the session; Opus (or any
+// other codec) must arrive in a streamable container such as WebM or Ogg from MediaRecorder, and
+// is decoded to PCM by an FFmpeg process per session. Every session has a fixed-size ring buffer,
+// at most one transcription request in flight and, when decoding, a bounded frame queue, so memory
+// per session is capped and the session limit caps the total.
+@Service
+public class LiveCaptionService {
+
+    private static final Logger logger = Logger.getLogger(LiveCaptionService.class.getName());
+
+    public enum InputFormat {
+        PCM,      // 16 kHz mono s16le
+        CONTAINER // WebM/Ogg (Opus) or anything else FFmpeg can read from a pipe
+    }
+
+    @Autowired
+    private AiServiceClient aiServiceClient;
+
+    @Autowired
+    private FFmpegService ffmpegService;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${live.max-sessions:200}")
+    private int maxSessions;
+
+    @Value("${live.window-seconds:10}")
+    private int windowSeconds;
+
+    @Value("${live.step-ms:1000}")
+    private long stepMs;
+
+    @Value("${live.finalize-lag-ms:1500}")
+    private long finalizeLagMs;
+
+    @Value("${live.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    @Value("${live.decoder-queue-frames:64}")
+    private int decoderQueueFrames;
+
+    private final Map<String, Handle> sessions = new ConcurrentHashMap<>();
+    // One permit per session, taken before the session is built so concurrent opens cannot overshoot
+    private Semaphore sessionSlots;
+    private ThreadFactory decoderThreads;
+
+    // A session plus the FFmpeg decoder feeding it, if any
+    public class Handle {
+        private final LiveCaptionSession session;
+        private final InputFormat format;
+        private final BlockingQueue<byte[]> frames;
+        // Set when the client ends the input; checked by the decoder's stdin feed, so the end cannot
+        // be lost to a full queue the way a marker frame could
+        private volatile boolean inputEnded;
+        private FFmpegService.AudioPipe decoder;
+        // The start of a sample cut off at the end of a PCM frame, completed by the next frame.
+        // Frames of one WebSocket session are delivered one at a time, so this needs no lock.
+        private final byte[] partialSample = new byte[WavUtils.BYTES_PER_SAMPLE];
+        private int partialBytes;
+
+        private Handle(LiveCaptionSession session, InputFormat format) {
+            this.session = session;
+            this.format = format;
+            this.frames = format == InputFormat.CONTAINER ? new ArrayBlockingQueue<>(decoderQueueFrames) : null;
+        }
+
+        public String getSessionId() {
+            return session.getId();
+        }
+
+        // Returns false when the decoder has fallen too far behind and the client should be cut off.
+        public boolean accept(byte[] data) throws InterruptedException {
+            if (format == InputFormat.PCM) {
+                appendPcm(data);
+                return true;
+            }
+            return frames.offer(data, 2, TimeUnit.SECONDS);
+        }
+
+        private void appendPcm(byte[] data) {
+            int start = 0;
+            if (partialBytes > 0) {
+                start = Math.min(partialSample.length - partialBytes, data.length);
+                System.arraycopy(data, 0, partialSample, partialBytes, start);
+                partialBytes += start;
+                if (partialBytes < partialSample.length) {
+                    return;
+                }
+                session.appendPcm(partialSample, 0, partialSample.length);
+                partialBytes = 0;
+            }
+            int end = data.length - (data.length - start) % partialSample.length;
+            session.appendPcm(data, start, end - start);
+            partialBytes = data.length - end;
+            System.arraycopy(data, end, partialSample, 0, partialBytes);
+        }
+
+        public void stop() {
+            if (format == InputFormat.PCM) {
+                session.stop();
+            } else {
+                // End of input; the decoder drains the queued frames and then stops the session
+                inputEnded = true;
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        sessionSlots = new Semaphore(maxSessions);
+        decoderThreads = workerThreads.threadFactory("live-decoder-");
+    }
+
+    public Optional<Handle> open(InputFormat format, LiveCaptionSession.EventSink sink) throws IOException {
+        if (!sessionSlots.tryAcquire()) {
+            return Optional.empty();
+        }
+        String id = UUID.randomUUID().toString();
+        Handle handle;
+        try {
+            LiveCaptionSession session = new LiveCaptionSession(id, sink,
+                    audio -> aiServiceClient.transcribeAsync(audio).orTimeout(requestTimeoutMs, TimeUnit.MILLISECONDS),
+                    (int) WavUtils.toBytes(windowSeconds * 1000L), WavUtils.toBytes(stepMs), finalizeLagMs);
+            handle = new Handle(session, format);
+            if (format == InputFormat.CONTAINER) {
+                startDecoder(handle);
+            }
+        } catch (IOException | RuntimeException e) {
+            sessionSlots.release();
+            throw e;
+        }
+        sessions.put(id, handle);
+        logger.info("Live caption session " + id + " opened (" + format + ", " + sessions.size() + " active)");
+        return Optional.of(handle);
+    }
+
+    public void close(Handle handle) {
+        if (sessions.remove(handle.getSessionId()) == null) {
+            return;
+        }
+        sessionSlots.release();
+        handle.session.close();
+        if (handle.decoder != null) {
+            // Ends the feed to FFmpeg's stdin before the process is killed
+            handle.inputEnded = true;
+            handle.frames.clear();
+            handle.decoder.close();
+        }
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    private void startDecoder(Handle handle) throws IOException {
+        handle.decoder = ffmpegService.openPcmPipe(new FrameQueueInputStream(handle.frames, () -> handle.inputEnded));
+        decoderThreads.newThread(() -> {
+            byte[] buffer = new byte[(int) WavUtils.toBytes(100)];
+            try (InputStream pcm = handle.decoder.getAudioStream()) {
+                int read;
+                while ((read = pcm.readNBytes(buffer, 0, buffer.length)) > 0) {
+                    handle.session.appendPcm(buffer, 0, read - (read % WavUtils.BYTES_PER_SAMPLE));
+                }
+            } catch (IOException e) {
+                if (!handle.session.isClosed()) {
+                    logger.warning("Live decoder for session " + handle.getSessionId() + " failed: " + e.getMessage());
+                }
+            }
+            handle.session.stop();
+        }).start();
+    }
+
+    // Feeds queued WebSocket frames to FFmpeg's stdin until the input has ended and the queue is drained.
+    private static class FrameQueueInputStream extends InputStream {
+        // How long a read waits for a frame before checking for the end of the input again
+        private static final long END_CHECK_INTERVAL_MS = 100;
+
+        private final BlockingQueue<byte[]> frames;
+        private final BooleanSupplier inputEnded;
+        private byte[] current = new byte[0];
+        private int position;
+
+        FrameQueueInputStream(BlockingQueue<byte[]> frames, BooleanSupplier inputEnded) {
+            this.frames = frames;
+            this.inputEnded = inputEnded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (position == current.length) {
+                // Read before polling: frames accepted before the end was signalled are already queued
+                boolean ended = inputEnded.getAsBoolean();
+                byte[] next;
+                try {
+                    next = frames.poll(END_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for audio", e);
+                }
+                if (next == null) {
+                    if (ended) {
+                        return -1;
+                    }
+                    continue;
+                }
+                current = next;
+                position = 0;
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+}
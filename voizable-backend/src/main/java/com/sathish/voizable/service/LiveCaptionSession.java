@@ -0,0 +1,251 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.dto.SubtitleCue;
+import com.sathish.voizable.dto.TranscriptionResponseDTO;
+import com.sathish.voizable.util.PcmRingBuffer;
+import com.sathish.voizable.util.SrtUtils;
+import com.sathish.voizable.util.WavUtils;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+// One live captioning stream. Audio goes into a ring buffer; every step of new audio the window from
+// the last finalized cue up to now (at most one ring's worth) is transcribed. Cues that end well
+// before the window end are unlikely to change and become final, and the next window starts where
+// they end. The rest are sent as partials that later windows may revise.
+//
+// Cue IDs are positional: the n-th cue of the stream is always "c<n>", whether it arrives as a
+// partial, is revised, or is finalized. Clients replace the partials they show on each partial event.
+public class LiveCaptionSession {
+
+    private static final Logger logger = Logger.getLogger(LiveCaptionSession.class.getName());
+
+    // Windows shorter than this are not worth a request
+    private static final long MIN_WINDOW_BYTES = WavUtils.toBytes(250);
+
+    public interface EventSink {
+        void send(Map<String, Object> event);
+
+        void close();
+    }
+
+    private final String id;
+    private final EventSink sink;
+    private final Function<Resource, CompletableFuture<TranscriptionResponseDTO>> transcriber;
+    private final long stepBytes;
+    private final long finalizeLagMs;
+    private final long windowBytes;
+
+    // All state below is guarded by this
+    private PcmRingBuffer ring;
+    private long committedByte;
+    private long lastDispatchEnd;
+    private boolean inFlight;
+    private boolean stopping;
+    private boolean closed;
+    private int finalCount;
+
+    LiveCaptionSession(String id, EventSink sink, Function<Resource, CompletableFuture<TranscriptionResponseDTO>> transcriber,
+                       int windowBytes, long stepBytes, long finalizeLagMs) {
+        this.id = id;
+        this.sink = sink;
+        this.transcriber = transcriber;
+        this.windowBytes = windowBytes;
+        this.stepBytes = stepBytes;
+        this.finalizeLagMs = finalizeLagMs;
+        this.ring = new PcmRingBuffer(windowBytes);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // Accepts 16 kHz mono s16le PCM.
+    public void appendPcm(byte[] data, int offset, int length) {
+        synchronized (this) {
+            if (closed || stopping) {
+                return;
+            }
+            ring.write(data, offset, length);
+            if (!inFlight && ring.getPosition() - lastDispatchEnd >= stepBytes) {
+                dispatch(false, null);
+            }
+        }
+    }
+
+    // Transcribes what is left, finalizes every cue and ends the stream.
+    public void stop() {
+        List<Map<String, Object>> events = new ArrayList<>();
+        synchronized (this) {
+            if (closed || stopping) {
+                return;
+            }
+            stopping = true;
+            // Otherwise the request in flight finishes the stream when it completes
+            if (!inFlight) {
+                dispatch(true, events);
+            }
+        }
+        deliver(events);
+    }
+
+    public boolean isClosed() {
+        synchronized (this) {
+            return closed;
+        }
+    }
+
+    // Releases the buffer; results of a request still in flight are dropped.
+    void close() {
+        synchronized (this) {
+            closed = true;
+            ring = null;
+        }
+    }
+
+    // Events produced without a request, i.e. the end of a stream with no audio left, go to events.
+    private void dispatch(boolean flush, List<Map<String, Object>> events) {
+        long end = ring.getPosition();
+        long start = Math.max(committedByte, ring.getOldestPosition());
+        if (end - start < MIN_WINDOW_BYTES) {
+            if (flush) {
+                finish(events);
+            }
+            return;
+        }
+        byte[] wav = WavUtils.toWav(ring.copy(start, end));
+        inFlight = true;
+        lastDispatchEnd = end;
+        CompletableFuture<TranscriptionResponseDTO> result;
+        try {
+            result = transcriber.apply(new ByteArrayResource(wav) {
+                @Override
+                public String getFilename() {
+                    return "live-" + id + ".wav";
+                }
+            });
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((response, error) -> onResult(start, end, response, error));
+    }
+
+    private void onResult(long startByte, long endByte, TranscriptionResponseDTO response, Throwable error) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        synchronized (this) {
+            inFlight = false;
+            if (closed) {
+                return;
+            }
+            boolean flush = stopping;
+            if (error != null) {
+                logger.warning("Live caption window failed for session " + id + ": " + error.getMessage());
+                events.add(Map.of("type", "error", "message", "Transcription of the latest audio failed; retrying."));
+            } else {
+                collectCues(startByte, endByte, SrtUtils.parse(response.getSrtContent()), flush, events);
+            }
+
+            if (flush) {
+                // A stop that arrived during this request still has audio past endByte to transcribe
+                if (ring.getPosition() > endByte && error == null) {
+                    dispatch(true, events);
+                } else {
+                    finish(events);
+                }
+            } else if (ring.getPosition() - lastDispatchEnd >= stepBytes) {
+                dispatch(false, null);
+            }
+        }
+        deliver(events);
+    }
+
+    // Sends outside the lock, so a slow client never holds up audio intake, and closes the
+    // connection once the end event is out.
+    private void deliver(List<Map<String, Object>> events) {
+        for (Map<String, Object> event : events) {
+            sink.send(event);
+            if ("end".equals(event.get("type"))) {
+                sink.close();
+            }
+        }
+    }
+
+    // Rebases the window's cues onto the stream timeline and splits them into final and partial cues.
+    private void collectCues(long startByte, long endByte, List<SubtitleCue> windowCues, boolean flush,
+                             List<Map<String, Object>> events) {
+        long windowStartMs = WavUtils.toMillis(startByte);
+        long windowEndMs = WavUtils.toMillis(endByte);
+        List<SubtitleCue> cues = new ArrayList<>(windowCues.size());
+        for (SubtitleCue cue : windowCues) {
+            // Whisper sometimes places a cue past the audio it was given
+            if (windowStartMs + cue.getStartMs() >= windowEndMs) {
+                continue;
+            }
+            cues.add(new SubtitleCue(0, windowStartMs + cue.getStartMs(),
+                    Math.min(windowEndMs, windowStartMs + cue.getEndMs()), cue.getText()));
+        }
+
+        // Finalize a prefix, so IDs stay in stream order
+        int finals = 0;
+        while (finals < cues.size() && (flush || cues.get(finals).getEndMs() <= windowEndMs - finalizeLagMs)) {
+            finals++;
+        }
+        boolean windowFull = endByte - startByte >= windowBytes;
+        if (finals == 0 && windowFull && !cues.isEmpty()) {
+            // Continuous speech with no settled cue; finalize the first so the window can move on
+            finals = 1;
+        }
+
+        if (finals > 0) {
+            List<Map<String, Object>> finalCues = new ArrayList<>();
+            for (SubtitleCue cue : cues.subList(0, finals)) {
+                finalCues.add(describeCue(++finalCount, cue));
+            }
+            events.add(event("final", finalCues));
+            committedByte = Math.min(endByte, WavUtils.toBytes(cues.get(finals - 1).getEndMs()));
+        } else if (cues.isEmpty() && windowFull) {
+            // Nothing said for a whole window; keep only the tail in case a word is starting
+            committedByte = endByte - WavUtils.toBytes(finalizeLagMs);
+        }
+
+        List<Map<String, Object>> partialCues = new ArrayList<>();
+        int next = finalCount;
+        for (SubtitleCue cue : cues.subList(finals, cues.size())) {
+            partialCues.add(describeCue(++next, cue));
+        }
+        events.add(event("partial", partialCues));
+    }
+
+    private void finish(List<Map<String, Object>> events) {
+        closed = true;
+        ring = null;
+        logger.info("Live caption session " + id + " finished with " + finalCount + " cues");
+        Map<String, Object> end = new LinkedHashMap<>();
+        end.put("type", "end");
+        end.put("cues", finalCount);
+        events.add(end);
+    }
+
+    private Map<String, Object> event(String type, List<Map<String, Object>> cues) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", type);
+        event.put("cues", cues);
+        return event;
+    }
+
+    private Map<String, Object> describeCue(int number, SubtitleCue cue) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("cueId", "c" + number);
+        description.put("startMs", cue.getStartMs());
+        description.put("endMs", cue.getEndMs());
+        description.put("text", cue.getText());
+        return description;
+    }
+}
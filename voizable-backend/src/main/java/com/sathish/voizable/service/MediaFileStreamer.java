@@ -0,0 +1,231 @@
+package com.sathish.voizable.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+// Serves files from uploads.dir with byte ranges (206, including multipart/byteranges), conditional
+// GET and cache headers. Whole files and single ranges are handed to Tomcat's sendfile when the
+// connector supports it; everything else goes through FileChannel.transferTo.
+@Component
+public class MediaFileStreamer {
+
+    private static final Logger logger = Logger.getLogger(MediaFileStreamer.class.getName());
+
+    // Request attributes Tomcat's NIO connectors use for sendfile
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this size the sendfile handoff costs more than it saves
+    @Value("${media.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    // Requests for more ranges than this are answered with 416
+    @Value("${media.max-ranges:16}")
+    private int maxRanges;
+
+    // Captioned outputs get a fresh random name on every run, so they never change once written
+    @Value("${media.immutable-max-age-seconds:31536000}")
+    private long immutableMaxAgeSeconds;
+
+    public void stream(File file, MediaType contentType, String contentDisposition, boolean immutable,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        stream(file, contentType, contentDisposition, immutable, true, request, response);
+    }
+
+    // Without sendfile every byte is written before this returns, so the file may be deleted afterwards.
+    public void stream(File file, MediaType contentType, String contentDisposition, boolean immutable, boolean allowSendfile,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable
+                ? "public, max-age=" + immutableMaxAgeSeconds + ", immutable"
+                : "no-cache");
+        if (contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+
+        // Sets ETag and Last-Modified, and answers 304 / 412 when the client's copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        boolean headOnly = HttpMethod.HEAD.matches(request.getMethod());
+        List<HttpRange> ranges = parseRanges(request, etag, lastModified, length);
+        if (ranges == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                transfer(file, 0, length, allowSendfile, request, response);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!headOnly) {
+                transfer(file, start, end - start + 1, allowSendfile, request, response);
+            }
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (headOnly) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                out.write(("\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                transferTo(channel, start, end - start + 1, target);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    // Returns the requested ranges in ascending order with overlapping and adjacent ones merged, an
+    // empty list for the whole file, or null when unsatisfiable.
+    private List<HttpRange> parseRanges(HttpServletRequest request, String etag, long lastModified, long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return List.of();
+        }
+        // A stale If-Range means the client's partial copy is outdated, so send everything
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                return List.of();
+            }
+            try {
+                if (request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 != lastModified / 1000) {
+                    return List.of();
+                }
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Malformed or too many ranges
+            return null;
+        }
+        if (ranges.isEmpty()) {
+            return List.of();
+        }
+        if (ranges.size() > maxRanges) {
+            return null;
+        }
+        long[][] bounds = new long[ranges.size()][];
+        long requested = 0;
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                long start = ranges.get(i).getRangeStart(length);
+                long end = ranges.get(i).getRangeEnd(length);
+                if (start > end) {
+                    return null;
+                }
+                bounds[i] = new long[]{start, end};
+                requested += end - start + 1;
+            }
+        } catch (IllegalArgumentException e) {
+            // Starting past the end of the file
+            return null;
+        }
+        // Overlapping ranges asking for more than the file itself are cheaper to answer with all of it
+        if (requested > length) {
+            return List.of();
+        }
+        return mergeRanges(bounds);
+    }
+
+    private static List<HttpRange> mergeRanges(long[][] bounds) {
+        Arrays.sort(bounds, Comparator.comparingLong(range -> range[0]));
+        List<HttpRange> merged = new ArrayList<>(bounds.length);
+        long start = bounds[0][0];
+        long end = bounds[0][1];
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i][0] <= end + 1) {
+                end = Math.max(end, bounds[i][1]);
+            } else {
+                merged.add(HttpRange.createByteRange(start, end));
+                start = bounds[i][0];
+                end = bounds[i][1];
+            }
+        }
+        merged.add(HttpRange.createByteRange(start, end));
+        return merged;
+    }
+
+    private void transfer(File file, long start, long count, boolean allowSendfile, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        if (allowSendfile && count >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat writes the bytes itself once the servlet returns, straight from the page cache
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transferTo(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private void transferTo(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long written = channel.transferTo(position, end - position, target);
+            if (written <= 0) {
+                logger.warning("Transfer stalled at byte " + position + " of " + end);
+                throw new IOException("Could not write the requested range to the client");
+            }
+            position += written;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.model.CaptionJob;
+import com.sathish.voizable.model.OutputArtifact;
+import com.sathish.voizable.repository.CaptionJobRepository;
+import com.sathish.voizable.repository.OutputArtifactRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Tracks the captioned videos and sidecar subtitles caption jobs leave in uploads.dir and keeps
+// them within a disk quota. Outputs unused for longer than the TTL are evicted, then the least
+// recently used ones until the total is under the quota. A job's outputs are evicted together,
+// and the job is marked so its download links answer 410 Gone instead of a bare 404.
+//
+// Sweeps run on the FileJanitor thread after every new output and on a fixed interval. Eviction
+// claims each row with a conditional update, so several nodes sharing uploads.dir can sweep at once.
+@Service
+public class OutputArtifactManager {
+
+    private static final Logger logger = Logger.getLogger(OutputArtifactManager.class.getName());
+
+    @Autowired
+    private OutputArtifactRepository outputArtifactRepository;
+
+    @Autowired
+    private CaptionJobRepository captionJobRepository;
+
+    @Autowired
+    private CaptionJobStore captionJobStore;
+
+    @Autowired
+    private FileJanitor fileJanitor;
+
+    @Value("${uploads.dir}")
+    private String uploadsDir;
+
+    @Value("${artifacts.max-total-bytes:53687091200}")
+    private long maxTotalBytes;
+
+    // 0 keeps outputs until the quota needs the space
+    @Value("${artifacts.ttl-hours:168}")
+    private long ttlHours;
+
+    // Outputs this young are never evicted, so a finished job can always be downloaded at least once
+    @Value("${artifacts.min-age-minutes:10}")
+    private long minAgeMinutes;
+
+    @Value("${artifacts.touch-interval-seconds:60}")
+    private long touchIntervalSeconds;
+
+    @Value("${artifacts.sweep-interval-minutes:15}")
+    private long sweepIntervalMinutes;
+
+    @Value("${artifacts.batch-size:100}")
+    private int batchSize;
+
+    private Path uploadsPath;
+    private final AtomicBoolean sweepQueued = new AtomicBoolean();
+    private volatile long liveBytes;
+
+    @PostConstruct
+    void init() {
+        uploadsPath = Paths.get(uploadsDir);
+        // Outputs written before tracking existed are adopted first, then swept like any other
+        fileJanitor.execute(this::adoptUntracked);
+        fileJanitor.scheduleWithFixedDelay(this::sweep, sweepIntervalMinutes, sweepIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public void register(String jobId, File file, OutputArtifact.Kind kind) {
+        try {
+            OutputArtifact artifact = outputArtifactRepository.findByFileName(file.getName()).orElseGet(OutputArtifact::new);
+            LocalDateTime now = LocalDateTime.now();
+            artifact.setJobId(jobId);
+            artifact.setFileName(file.getName());
+            artifact.setKind(kind);
+            artifact.setSizeBytes(Files.size(file.toPath()));
+            artifact.setCreatedAt(now);
+            artifact.setLastAccessedAt(now);
+            artifact.setEvictedAt(null);
+            outputArtifactRepository.save(artifact);
+            liveBytes += artifact.getSizeBytes();
+        } catch (IOException | RuntimeException e) {
+            // The startup scan adopts it later; the job itself has still succeeded
+            logger.warning("Could not register output " + file.getName() + " of job " + jobId + ": " + e.getMessage());
+        }
+        requestSweep();
+    }
+
+    // Records a download or preview of an output, for least-recently-used eviction.
+    public void touch(String fileName) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            outputArtifactRepository.touch(fileName, now, now.minusSeconds(touchIntervalSeconds));
+        } catch (RuntimeException e) {
+            logger.fine("Could not record access to " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    public boolean isEvicted(String fileName) {
+        return outputArtifactRepository.findByFileName(fileName)
+                .map(artifact -> artifact.getEvictedAt() != null)
+                .orElse(false);
+    }
+
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+
+    private void requestSweep() {
+        if (sweepQueued.compareAndSet(false, true)) {
+            fileJanitor.execute(() -> {
+                sweepQueued.set(false);
+                sweep();
+            });
+        }
+    }
+
+    private void sweep() {
+        try {
+            if (ttlHours > 0) {
+                expire(LocalDateTime.now().minusHours(ttlHours));
+            }
+            enforceQuota();
+        } catch (RuntimeException e) {
+            logger.warning("Output artifact sweep failed: " + e.getMessage());
+        }
+    }
+
+    private void expire(LocalDateTime cutoff) {
+        List<OutputArtifact> expired;
+        do {
+            expired = outputArtifactRepository.findByEvictedAtIsNullAndLastAccessedAtBefore(cutoff, PageRequest.of(0, batchSize));
+            for (OutputArtifact artifact : expired) {
+                evict(artifact, "unused for over " + ttlHours + " hours");
+            }
+        } while (expired.size() == batchSize);
+    }
+
+    private void enforceQuota() {
+        LocalDateTime youngest = LocalDateTime.now().minusMinutes(minAgeMinutes);
+        while (true) {
+            long total = outputArtifactRepository.sumLiveBytes();
+            liveBytes = total;
+            if (total <= maxTotalBytes) {
+                return;
+            }
+            List<OutputArtifact> oldest = outputArtifactRepository.findByEvictedAtIsNullOrderByLastAccessedAtAsc(PageRequest.of(0, batchSize));
+            if (oldest.isEmpty()) {
+                return;
+            }
+            for (OutputArtifact artifact : oldest) {
+                if (total <= maxTotalBytes) {
+                    break;
+                }
+                if (artifact.getLastAccessedAt().isAfter(youngest)) {
+                    logger.warning("Outputs use " + total + " bytes, over the " + maxTotalBytes
+                            + " byte quota, but the rest were used in the last " + minAgeMinutes + " minutes");
+                    return;
+                }
+                total -= evict(artifact, "disk quota of " + maxTotalBytes + " bytes exceeded");
+            }
+        }
+    }
+
+    // Evicts the artifact with the rest of its job's outputs and returns the bytes freed.
+    private long evict(OutputArtifact artifact, String reason) {
+        List<OutputArtifact> outputs = artifact.getJobId() == null
+                ? List.of(artifact)
+                : outputArtifactRepository.findByJobIdAndEvictedAtIsNull(artifact.getJobId());
+        LocalDateTime now = LocalDateTime.now();
+        long freed = 0;
+        for (OutputArtifact output : outputs) {
+            if (outputArtifactRepository.markEvicted(output.getId(), now) == 1) {
+                freed += output.getSizeBytes();
+                fileJanitor.delete(uploadsPath.resolve(output.getFileName()), "evicted output");
+            }
+        }
+        if (freed > 0) {
+            if (artifact.getJobId() != null) {
+                captionJobStore.markOutputsEvicted(artifact.getJobId(), now);
+            }
+            liveBytes -= freed;
+            logger.info("Evicted " + (artifact.getJobId() != null ? "outputs of job " + artifact.getJobId() : artifact.getFileName())
+                    + " (" + freed + " bytes): " + reason);
+        }
+        return freed;
+    }
+
+    private void adoptUntracked() {
+        List<Path> outputs;
+        try (Stream<Path> files = Files.list(uploadsPath)) {
+            outputs = files.filter(path -> isOutputName(path.getFileName().toString()))
+                    .filter(Files::isRegularFile)
+                    .toList();
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Could not scan " + uploadsPath + " for untracked outputs: " + e.getMessage());
+            return;
+        }
+        int adopted = 0;
+        for (int from = 0; from < outputs.size(); from += batchSize) {
+            List<Path> batch = outputs.subList(from, Math.min(outputs.size(), from + batchSize));
+            List<String> names = new ArrayList<>(batch.size());
+            batch.forEach(path -> names.add(path.getFileName().toString()));
+            Set<String> tracked = new HashSet<>(outputArtifactRepository.findTrackedFileNames(names));
+            for (Path path : batch) {
+                String name = path.getFileName().toString();
+                if (!tracked.contains(name) && adopt(path, name)) {
+                    adopted++;
+                }
+            }
+        }
+        if (adopted > 0) {
+            logger.info("Adopted " + adopted + " untracked outputs in " + uploadsPath);
+        }
+        sweep();
+    }
+
+    private boolean adopt(Path path, String name) {
+        try {
+            Optional<CaptionJob> job = captionJobRepository.findFirstByCaptionedVideoPathOrSubtitlePath(name, name);
+            LocalDateTime modified = LocalDateTime.ofInstant(Instant.ofEpochMilli(path.toFile().lastModified()), ZoneId.systemDefault());
+            OutputArtifact artifact = new OutputArtifact();
+            artifact.setJobId(job.map(CaptionJob::getId).orElse(null));
+            artifact.setFileName(name);
+            artifact.setKind(name.endsWith(".mp4") ? OutputArtifact.Kind.VIDEO : OutputArtifact.Kind.SUBTITLES);
+            artifact.setSizeBytes(Files.size(path));
+            artifact.setCreatedAt(modified);
+            artifact.setLastAccessedAt(modified);
+            outputArtifactRepository.save(artifact);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Another node adopted it first, or a job registered it meanwhile
+            logger.fine("Could not adopt " + name + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isOutputName(String name) {
+        return name.startsWith("captioned_") && (name.endsWith(".mp4") || name.endsWith(".vtt"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.sathish.voizable.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Point-in-time gauges for queues, running FFmpeg processes and in-memory caches. Kept apart from
+// PipelineMetrics so the services it samples can depend on PipelineMetrics without a cycle.
+@Component
+public class PipelineGauges implements MeterBinder {
+
+    @Autowired
+    private CaptionJobScheduler captionJobScheduler;
+
+    @Autowired
+    private FFmpegService ffmpegService;
+
+    @Autowired
+    private JobEventBus jobEventBus;
+
+    @Autowired
+    private CaptionJobStore captionJobStore;
+
+    @Autowired
+    private TranscriptionCache transcriptionCache;
+
+    @Autowired
+    private TranscriptionBackendPool transcriptionBackendPool;
+
+    @Autowired
+    private LiveCaptionService liveCaptionService;
+
+    @Autowired
+    private OutputArtifactManager outputArtifactManager;
+
+    @Autowired
+    private FileJanitor fileJanitor;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("voizable.queue.depth", captionJobScheduler, CaptionJobScheduler::getTranscriptionQueueDepth)
+                .description("Jobs waiting for a worker")
+                .tag("pool", "transcription")
+                .register(registry);
+        Gauge.builder("voizable.queue.depth", captionJobScheduler, CaptionJobScheduler::getEncodingQueueDepth)
+                .description("Jobs waiting for a worker")
+                .tag("pool", "encoding")
+                .register(registry);
+        Gauge.builder("voizable.jobs.admitted", captionJobScheduler, CaptionJobScheduler::getAdmittedCount)
+                .description("Captioning jobs admitted and not yet finished")
+                .register(registry);
+        Gauge.builder("voizable.ffmpeg.running", ffmpegService, FFmpegService::getRunningProcessCount)
+                .description("FFmpeg processes currently running")
+                .register(registry);
+        Gauge.builder("voizable.events.subscribers", jobEventBus, JobEventBus::getSubscriberCount)
+                .description("Open job event streams")
+                .register(registry);
+        Gauge.builder("voizable.jobs.cached", captionJobStore, CaptionJobStore::size)
+                .description("Caption jobs held in the in-memory job store")
+                .register(registry);
+        Gauge.builder("voizable.live.sessions", liveCaptionService, LiveCaptionService::getActiveSessionCount)
+                .description("Open live captioning sessions")
+                .register(registry);
+        Gauge.builder("voizable.artifacts.bytes", outputArtifactManager, OutputArtifactManager::getLiveBytes)
+                .description("Bytes of caption job outputs kept in uploads.dir")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("voizable.cleanup.pending", fileJanitor, FileJanitor::getPendingDeleteCount)
+                .description("Files waiting for a retried delete")
+                .register(registry);
+        FunctionCounter.builder("voizable.transcription.cache.requests", transcriptionCache, TranscriptionCache::getHitCount)
+                .description("Transcript cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("voizable.transcription.cache.requests", transcriptionCache, TranscriptionCache::getMissCount)
+                .description("Transcript cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        for (TranscriptionBackendPool.Endpoint endpoint : transcriptionBackendPool.getEndpoints()) {
+            Gauge.builder("voizable.ai.backend.in_flight", endpoint, TranscriptionBackendPool.Endpoint::getOutstanding)
+                    .description("Requests in flight to a transcription backend")
+                    .tag("endpoint", endpoint.getUri().toString())
+                    .register(registry);
+            Gauge.builder("voizable.ai.backend.healthy", endpoint, e -> e.isHealthy() ? 1 : 0)
+                    .description("Whether a transcription backend is in rotation")
+                    .tag("endpoint", endpoint.getUri().toString())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.sathish.voizable.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Timers and failure counters for each pipeline stage, published under voizable.* and scraped
+// through /actuator/prometheus. Stage timers carry a percentile histogram so slow jobs can be
+// attributed to FFmpeg, the AI service or the database.
+@Component
+public class PipelineMetrics {
+
+    public static final String UPLOAD_SPOOL = "upload.spool";
+    public static final String FFMPEG_EXTRACT = "ffmpeg.extract";
+    public static final String AI_TRANSCRIBE = "ai.transcribe";
+    public static final String DB_SAVE = "db.save";
+    public static final String SUBTITLE_BURN = "subtitle.burn";
+    public static final String SUBTITLE_MUX = "subtitle.mux";
+    public static final String CLEANUP = "cleanup";
+
+    // A stage body that may throw the checked exceptions used across the pipeline
+    @FunctionalInterface
+    public interface StageCall<T> {
+        T call() throws IOException, InterruptedException;
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Times one stage and returns its result. The duration is recorded as well when it fails.
+    public <T> T time(String stage, StageCall<T> call) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            recordFailure(stage, e);
+            throw e;
+        } finally {
+            stageTimer(stage, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Same as time() for stages without checked exceptions.
+    public <T> T timeUnchecked(String stage, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException e) {
+            recordFailure(stage, e);
+            throw e;
+        } finally {
+            stageTimer(stage, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Records a stage that completed asynchronously; error is null on success.
+    public void record(String stage, long durationNanos, Throwable error) {
+        if (error != null) {
+            recordFailure(stage, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        }
+        stageTimer(stage, error == null ? "success" : "failure").record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCleanup(long durationNanos) {
+        stageTimer(CLEANUP, "success").record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordJob(String outputMode, boolean succeeded, long durationMillis) {
+        Timer.builder("voizable.caption.job")
+                .description("End-to-end captioning job time from admission to a terminal state")
+                .tag("outputMode", outputMode)
+                .tag("outcome", succeeded ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordFailure(String stage, Throwable error) {
+        Counter.builder("voizable.pipeline.failures")
+                .description("Pipeline failures by stage and cause")
+                .tag("stage", stage)
+                .tag("cause", causeOf(error))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer stageTimer(String stage, String outcome) {
+        return Timer.builder("voizable.pipeline.stage")
+                .description("Time spent in each captioning and transcription pipeline stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Coarse cause buckets keep the counter's tag cardinality bounded
+    private static String causeOf(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        if (root instanceof SocketTimeoutException || root instanceof TimeoutException
+                || String.valueOf(root.getMessage()).contains("timed out")) {
+            return "timeout";
+        }
+        if (root instanceof InterruptedException) {
+            return "interrupted";
+        }
+        if (String.valueOf(error.getMessage()).startsWith("FFmpeg")) {
+            return "ffmpeg";
+        }
+        if (root instanceof ConnectException || error instanceof RestClientException
+                || String.valueOf(root.getMessage()).startsWith("AI service")) {
+            return "ai_service";
+        }
+        if (error instanceof DataAccessException) {
+            return "database";
+        }
+        if (root instanceof IOException) {
+            return "io";
+        }
+        return "other";
+    }
+}
@@ -0,0 +1,378 @@
+package com.sathish.voizable.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sathish.voizable.exception.UploadConflictException;
+import com.sathish.voizable.util.HashUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Resumable uploads in the style of tus. The client declares the total length up front and then
+// sends chunks at byte offsets, in any order and in parallel. Each chunk is copied from the request
+// body straight into the upload's file on staging storage through a FileChannel, so memory use does
+// not depend on the size of the chunk or the upload. The byte ranges received so far are written to
+// a small sidecar file after every chunk, so an interrupted upload can resume from what the server
+// already has, even after a restart. A finished upload is handed to the pipelines as a StagedUpload.
+@Component
+public class ResumableUploadStore {
+
+    private static final Logger logger = Logger.getLogger(ResumableUploadStore.class.getName());
+
+    // Bytes moved per transferFrom call; a chunk cut off mid-call only loses this much
+    private static final long TRANSFER_STEP_BYTES = 1024 * 1024;
+
+    public static class Upload {
+        private final String id;
+        private final long length;
+        private final String fileName;
+        private final String contentType;
+        private final Path dataPath;
+        // Received byte ranges, start -> end (exclusive), merged and non-overlapping
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+        private boolean claimed;
+        // Chunks being copied in right now; complete() refuses to hand the file off until they finish
+        private int activeWriters;
+
+        Upload(String id, long length, String fileName, String contentType, Path dataPath) {
+            this.id = id;
+            this.length = length;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.dataPath = dataPath;
+        }
+
+        public String getId() { return id; }
+        public long getLength() { return length; }
+        public String getFileName() { return fileName; }
+        public String getContentType() { return contentType; }
+
+        // Where a sequential client should continue: the end of the range starting at byte 0.
+        public synchronized long getOffset() {
+            Long end = ranges.get(0L);
+            return end != null ? end : 0;
+        }
+
+        public synchronized long getReceivedBytes() {
+            return ranges.entrySet().stream().mapToLong(range -> range.getValue() - range.getKey()).sum();
+        }
+
+        // Received ranges as inclusive "start-end" pairs, e.g. "0-1048575,4194304-5242879"
+        public synchronized String describeRanges() {
+            return ranges.entrySet().stream()
+                    .map(range -> range.getKey() + "-" + (range.getValue() - 1))
+                    .collect(Collectors.joining(","));
+        }
+
+        public synchronized boolean isComplete() {
+            return getOffset() == length;
+        }
+
+        synchronized void addRange(long start, long end) {
+            if (end <= start) {
+                return;
+            }
+            Map.Entry<Long, Long> before = ranges.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+            while (next != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                ranges.remove(next.getKey());
+                next = ranges.ceilingEntry(start);
+            }
+            ranges.put(start, end);
+        }
+    }
+
+    @Autowired
+    private StagingStore stagingStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${staging.dir:${uploads.dir}/staging}")
+    private String stagingDir;
+
+    @Value("${uploads.resumable.max-size-bytes:21474836480}")
+    private long maxSizeBytes;
+
+    // Unfinished uploads with no chunk for this long are deleted
+    @Value("${uploads.resumable.expiry-hours:24}")
+    private long expiryHours;
+
+    @Value("${uploads.resumable.sweep-interval-minutes:30}")
+    private long sweepIntervalMinutes;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private Path resumableDir;
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    void init() throws IOException {
+        resumableDir = Paths.get(stagingDir).resolve("resumable");
+        Files.createDirectories(resumableDir);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "resumable-upload-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMinutes, sweepIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public Upload create(long length, String fileName, String contentType) throws IOException {
+        if (length <= 0 || length > maxSizeBytes) {
+            throw new IllegalArgumentException("Upload length must be between 1 and " + maxSizeBytes + " bytes.");
+        }
+        String id = UUID.randomUUID().toString();
+        Upload upload = new Upload(id, length, fileName, contentType, resumableDir.resolve(id + ".part"));
+        // Sized up front (sparse where the file system allows) because transferFrom never writes past
+        // the end of a file, which chunks arriving out of order would otherwise need
+        try (RandomAccessFile file = new RandomAccessFile(upload.dataPath.toFile(), "rw")) {
+            file.setLength(length);
+        }
+        saveInfo(upload);
+        uploads.put(id, upload);
+        logger.info("Created resumable upload " + id + " (" + length + " bytes) for " + fileName);
+        return upload;
+    }
+
+    // Looks in memory first, then for an upload's sidecar left by an earlier run or another node.
+    public Optional<Upload> find(String id) {
+        Upload upload = uploads.get(id);
+        if (upload != null) {
+            return Optional.of(upload);
+        }
+        if (!isValidId(id)) {
+            return Optional.empty();
+        }
+        Path infoPath = resumableDir.resolve(id + ".json");
+        if (!Files.exists(infoPath)) {
+            return Optional.empty();
+        }
+        try {
+            Upload loaded = loadInfo(id, infoPath);
+            Upload existing = uploads.putIfAbsent(id, loaded);
+            return Optional.of(existing != null ? existing : loaded);
+        } catch (IOException e) {
+            logger.warning("Could not read resumable upload " + id + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Writes one chunk at the given offset and returns the upload's new offset. Whatever arrived
+    // before the client disconnected is kept, so a retry only needs to send the rest.
+    public long write(Upload upload, long offset, long chunkLength, ReadableByteChannel body) throws IOException {
+        long remaining = upload.length - offset;
+        if (offset < 0 || remaining <= 0) {
+            throw new IllegalArgumentException("Offset " + offset + " is outside the upload's " + upload.length + " bytes.");
+        }
+        if (chunkLength > remaining) {
+            throw new IllegalArgumentException("The chunk runs past the end of the upload: " + chunkLength
+                    + " bytes at offset " + offset + " of " + upload.length + ".");
+        }
+
+        long limit = chunkLength >= 0 ? chunkLength : remaining;
+        synchronized (upload) {
+            checkNotClaimed(upload);
+            upload.activeWriters++;
+        }
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(upload.dataPath, StandardOpenOption.WRITE)) {
+            try {
+                while (written < limit) {
+                    long transferred = channel.transferFrom(body, offset + written, Math.min(TRANSFER_STEP_BYTES, limit - written));
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+            } finally {
+                // Only record bytes that are on disk, and only while the upload is still ours to write
+                channel.force(false);
+                synchronized (upload) {
+                    checkNotClaimed(upload);
+                    upload.addRange(offset, offset + written);
+                    saveInfo(upload);
+                }
+            }
+        } finally {
+            synchronized (upload) {
+                upload.activeWriters--;
+            }
+        }
+        return upload.getOffset();
+    }
+
+    // Takes a finished upload out of the resumable area and stages it for a pipeline. The caller
+    // owns the returned handle's reference.
+    public StagedUpload complete(Upload upload) throws IOException {
+        synchronized (upload) {
+            if (!upload.isComplete()) {
+                throw new UploadConflictException("Upload " + upload.id + " is incomplete: " + upload.getOffset()
+                        + " of " + upload.length + " bytes received.");
+            }
+            checkNotClaimed(upload);
+            // A retried chunk can still be rewriting bytes that already count as received
+            if (upload.activeWriters > 0) {
+                throw new UploadConflictException("Upload " + upload.id + " still has " + upload.activeWriters
+                        + " chunks being written.");
+            }
+            upload.claimed = true;
+        }
+        try {
+            String contentHash;
+            try (InputStream in = Files.newInputStream(upload.dataPath)) {
+                contentHash = HashUtils.sha256(in);
+            }
+            Path staged = Paths.get(stagingDir).resolve(upload.id + StagingStore.extensionOf(upload.fileName));
+            Files.move(upload.dataPath, staged, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(resumableDir.resolve(upload.id + ".json"));
+            uploads.remove(upload.id);
+            return stagingStore.adopt(staged, upload.fileName, upload.contentType, contentHash)
+                    .orElseThrow(() -> new IOException("Staged upload disappeared: " + staged));
+        } catch (IOException | RuntimeException e) {
+            synchronized (upload) {
+                upload.claimed = false;
+            }
+            throw e;
+        }
+    }
+
+    // Undoes complete() for an upload that could not be queued after all: the file goes back to the
+    // resumable area, where the client can submit it again. Consumes the handle's reference.
+    public void reopen(Upload upload, StagedUpload staged) {
+        stagingStore.detach(staged);
+        staged.release();
+        try {
+            Files.move(staged.getPath(), upload.dataPath, StandardCopyOption.ATOMIC_MOVE);
+            saveInfo(upload);
+            synchronized (upload) {
+                upload.claimed = false;
+            }
+            uploads.put(upload.id, upload);
+            logger.info("Returned upload " + upload.id + " to the resumable area");
+        } catch (IOException e) {
+            logger.warning("Could not return upload " + upload.id + " to the resumable area: " + e.getMessage());
+            try {
+                Files.deleteIfExists(staged.getPath());
+            } catch (IOException deleteError) {
+                logger.warning("Failed to delete staged upload " + staged.getId() + ": " + deleteError.getMessage());
+            }
+        }
+    }
+
+    public boolean delete(String id) {
+        Optional<Upload> upload = find(id);
+        upload.ifPresent(this::discard);
+        return upload.isPresent();
+    }
+
+    private void discard(Upload upload) {
+        uploads.remove(upload.id);
+        try {
+            Files.deleteIfExists(upload.dataPath);
+            Files.deleteIfExists(resumableDir.resolve(upload.id + ".json"));
+            logger.info("Deleted resumable upload " + upload.id);
+        } catch (IOException e) {
+            logger.warning("Failed to delete resumable upload " + upload.id + ": " + e.getMessage());
+        }
+    }
+
+    // Deletes uploads whose sidecar has not been touched within the expiry window.
+    private void sweep() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(expiryHours);
+        try (Stream<Path> files = Files.list(resumableDir)) {
+            files.filter(path -> path.getFileName().toString().endsWith(".json"))
+                    .filter(path -> path.toFile().lastModified() < cutoff)
+                    .forEach(path -> {
+                        String id = path.getFileName().toString().replaceFirst("\\.json$", "");
+                        logger.info("Expiring abandoned resumable upload " + id);
+                        delete(id);
+                    });
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Resumable upload sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Serialised per upload so parallel chunks can never leave an older snapshot on disk
+    private void saveInfo(Upload upload) throws IOException {
+        synchronized (upload) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("length", upload.length);
+            info.put("fileName", upload.fileName);
+            info.put("contentType", upload.contentType);
+            List<long[]> ranges = new ArrayList<>();
+            upload.ranges.forEach((start, end) -> ranges.add(new long[]{start, end}));
+            info.put("ranges", ranges);
+
+            // Write then rename, so a crash never leaves a half-written sidecar
+            Path infoPath = resumableDir.resolve(upload.id + ".json");
+            Path temp = resumableDir.resolve(upload.id + ".json.tmp");
+            objectMapper.writeValue(temp.toFile(), info);
+            Files.move(temp, infoPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Upload loadInfo(String id, Path infoPath) throws IOException {
+        Map<String, Object> info = objectMapper.readValue(infoPath.toFile(), Map.class);
+        Upload upload = new Upload(id, ((Number) info.get("length")).longValue(), (String) info.get("fileName"),
+                (String) info.get("contentType"), resumableDir.resolve(id + ".part"));
+        for (List<Number> range : (List<List<Number>>) info.get("ranges")) {
+            upload.addRange(range.get(0).longValue(), range.get(1).longValue());
+        }
+        return upload;
+    }
+
+    private static void checkNotClaimed(Upload upload) {
+        if (upload.claimed) {
+            throw new UploadConflictException("Upload " + upload.id + " has already been handed to a pipeline.");
+        }
+    }
+
+    private static boolean isValidId(String id) {
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.sathish.voizable.service;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Handle to an upload that StagingStore has spooled to disk exactly once. Every stage that reads
+// the file holds a reference; the file is deleted when the last reference is released.
+public class StagedUpload {
+
+    private final String id;
+    private final Path path;
+    private final String originalFileName;
+    private final String contentType;
+    private final long size;
+    private final String contentHash;
+    private final StagingStore store;
+    // The creator holds the first reference
+    private final AtomicInteger references = new AtomicInteger(1);
+    // Set once the file belongs to someone else, e.g. a queued job or the node that took over a job;
+    // releasing the last reference then leaves the file in place
+    private volatile boolean detached;
+
+    StagedUpload(String id, Path path, String originalFileName, String contentType, long size,
+                 String contentHash, StagingStore store) {
+        this.id = id;
+        this.path = path;
+        this.originalFileName = originalFileName;
+        this.contentType = contentType;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.store = store;
+    }
+
+    public StagedUpload retain() {
+        int previous = references.getAndUpdate(count -> count > 0 ? count + 1 : count);
+        if (previous <= 0) {
+            throw new IllegalStateException("Staged upload " + id + " has already been released");
+        }
+        return this;
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            store.discard(this);
+        }
+    }
+
+    void detach() {
+        detached = true;
+    }
+
+    boolean isDetached() {
+        return detached;
+    }
+
+    public boolean isVideo() {
+        return contentType != null && contentType.startsWith("video");
+    }
+
+    public String getId() { return id; }
+    public Path getPath() { return path; }
+    public String getOriginalFileName() { return originalFileName; }
+    public String getContentType() { return contentType; }
+    public long getSize() { return size; }
+    public String getContentHash() { return contentHash; }
+}
@@ -0,0 +1,111 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.util.HashUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+// Spools each upload to disk once, inside the request, and hands out reference-counted handles
+// so every pipeline stage reads the same file. The SHA-256 is computed during the copy.
+@Component
+public class StagingStore {
+
+    private static final Logger logger = Logger.getLogger(StagingStore.class.getName());
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${staging.dir:${uploads.dir}/staging}")
+    private String stagingDir;
+
+    private final Map<String, StagedUpload> uploads = new ConcurrentHashMap<>();
+
+    public StagedUpload stage(MultipartFile file) throws IOException {
+        Path stagingPath = Paths.get(stagingDir);
+        if (!Files.exists(stagingPath)) {
+            Files.createDirectories(stagingPath);
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path target = stagingPath.resolve(id + extensionOf(file.getOriginalFilename()));
+        MessageDigest digest = HashUtils.newSha256();
+        try {
+            pipelineMetrics.time(PipelineMetrics.UPLOAD_SPOOL, () -> {
+                try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                    return Files.copy(in, target);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while staging upload", e);
+        }
+
+        StagedUpload upload = new StagedUpload(id, target, file.getOriginalFilename(), file.getContentType(),
+                Files.size(target), HashUtils.toHex(digest), this);
+        uploads.put(id, upload);
+        logger.info("Staged upload " + id + " (" + upload.getSize() + " bytes) for " + file.getOriginalFilename());
+        return upload;
+    }
+
+    // Re-opens an upload staged by an earlier run or another node, for a job claimed from the work
+    // queue. The returned handle holds the job's reference, as if it had been staged here.
+    public Optional<StagedUpload> adopt(Path path, String originalFileName, String contentType, String contentHash) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        String fileName = path.getFileName().toString();
+        int dot = fileName.indexOf('.');
+        String id = dot >= 0 ? fileName.substring(0, dot) : fileName;
+        StagedUpload upload = new StagedUpload(id, path, originalFileName, contentType, Files.size(path), contentHash, this);
+        uploads.put(id, upload);
+        logger.info("Adopted staged upload " + id + " (" + upload.getSize() + " bytes) for " + originalFileName);
+        return Optional.of(upload);
+    }
+
+    // Hands the file over to a job waiting in the work queue, or to the node that took a job over:
+    // the handle is forgotten and the file is kept when its references are released.
+    public void detach(StagedUpload upload) {
+        upload.detach();
+        uploads.remove(upload.getId());
+    }
+
+    public Optional<StagedUpload> get(String id) {
+        return Optional.ofNullable(uploads.get(id));
+    }
+
+    void discard(StagedUpload upload) {
+        uploads.remove(upload.getId(), upload);
+        if (upload.isDetached()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(upload.getPath());
+            logger.info("Released staged upload " + upload.getId());
+        } catch (IOException e) {
+            logger.warning("Failed to delete staged upload " + upload.getId() + ": " + e.getMessage());
+        }
+    }
+
+    static String extensionOf(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dot = fileName.lastIndexOf('.');
+        // Keep the extension so FFmpeg can still use it as a format hint
+        return dot >= 0 && dot > fileName.lastIndexOf('/') ? fileName.substring(dot).replaceAll("[^A-Za-z0-9.]", "") : "";
+    }
+}
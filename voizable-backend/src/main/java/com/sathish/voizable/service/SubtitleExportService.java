@@ -0,0 +1,209 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.model.Transcription;
+import com.sathish.voizable.repository.TranscriptionRepository;
+import com.sathish.voizable.util.SubtitleFormat;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Renders transcripts to subtitle files in exports.dir, cue by cue, and keeps the rendered files
+// as a disk cache bounded by total size with least-recently-used eviction. Transcripts never
+// change once saved, so a cached export stays valid until it is evicted.
+@Service
+public class SubtitleExportService {
+
+    private static final Logger logger = Logger.getLogger(SubtitleExportService.class.getName());
+
+    @Autowired
+    private TranscriptionRepository transcriptionRepository;
+
+    @Value("${exports.dir:${uploads.dir}/exports}")
+    private String exportsDir;
+
+    @Value("${exports.cache.max-bytes:536870912}")
+    private long maxCacheBytes;
+
+    private Path exportsPath;
+    // Access-ordered, so iteration starts at the least recently used export
+    private final Map<String, Long> cachedSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    // Exports being streamed right now, with their reader counts; eviction skips these
+    private final Map<String, Integer> pinned = new HashMap<>();
+    // Concurrent requests for an export that is not cached yet wait for a single render
+    private final Map<String, CompletableFuture<File>> renders = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        exportsPath = Paths.get(exportsDir);
+        Files.createDirectories(exportsPath);
+        // Adopt exports rendered before a restart, oldest first so they are evicted first
+        try (Stream<Path> files = Files.list(exportsPath)) {
+            List<Path> existing = files.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                    .toList();
+            for (Path path : existing) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(path);
+                } else {
+                    cache(name, Files.size(path));
+                }
+            }
+        }
+        logger.info("Subtitle export cache at " + exportsPath + " holds " + cachedSizes.size() + " files (" + cachedBytes + " bytes)");
+    }
+
+    public interface ExportReader {
+        void read(File export) throws IOException;
+    }
+
+    // Hands the rendered export to the reader, rendering it first on a cache miss. The file is pinned
+    // until the reader returns, so eviction cannot delete it mid-read. Returns false if the
+    // transcription does not exist.
+    public boolean export(Long transcriptionId, SubtitleFormat format, ExportReader reader) throws IOException {
+        String name = transcriptionId + "." + format.getExtension();
+        File export = pin(transcriptionId, format, name);
+        if (export == null) {
+            return false;
+        }
+        try {
+            reader.read(export);
+            return true;
+        } finally {
+            unpin(name);
+        }
+    }
+
+    private File pin(Long transcriptionId, SubtitleFormat format, String name) throws IOException {
+        File cached = exportsPath.resolve(name).toFile();
+        // A fresh render can be evicted again before it is pinned, so look it up until the pin holds
+        while (true) {
+            synchronized (cachedSizes) {
+                // get() rather than containsKey() so the hit counts as a use for LRU order
+                if (cachedSizes.get(name) != null && cached.isFile()) {
+                    pinned.merge(name, 1, Integer::sum);
+                    return cached;
+                }
+            }
+            if (render(transcriptionId, format, name) == null) {
+                return null;
+            }
+        }
+    }
+
+    private void unpin(String name) {
+        synchronized (cachedSizes) {
+            pinned.computeIfPresent(name, (key, readers) -> readers > 1 ? readers - 1 : null);
+            // Evictions skipped while the export was pinned can happen now
+            trim(null);
+        }
+    }
+
+    // Concurrent requests for the same missing export share one render.
+    private File render(Long transcriptionId, SubtitleFormat format, String name) throws IOException {
+        CompletableFuture<File> render = new CompletableFuture<>();
+        CompletableFuture<File> existing = renders.putIfAbsent(name, render);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            File file = renderFile(transcriptionId, format, name);
+            render.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            render.completeExceptionally(e);
+            throw e;
+        } finally {
+            renders.remove(name);
+        }
+    }
+
+    private File renderFile(Long transcriptionId, SubtitleFormat format, String name) throws IOException {
+        Transcription transcription = transcriptionRepository.findWithContentById(transcriptionId).orElse(null);
+        if (transcription == null) {
+            return null;
+        }
+        long startTime = System.currentTimeMillis();
+        Path target = exportsPath.resolve(name);
+        Path temp = exportsPath.resolve(name + "." + Thread.currentThread().getId() + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temp), StandardCharsets.UTF_8), 64 * 1024)) {
+            format.writeHeader(out);
+            transcription.forEachSegment(cue -> format.writeCue(out, cue));
+            format.writeFooter(out);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long size = Files.size(target);
+        cache(name, size);
+        logger.info("Rendered " + name + " (" + size + " bytes) in " + (System.currentTimeMillis() - startTime) + " ms");
+        return target.toFile();
+    }
+
+    private void cache(String name, long size) {
+        synchronized (cachedSizes) {
+            Long previous = cachedSizes.put(name, size);
+            cachedBytes += size - (previous != null ? previous : 0);
+            // Never evict the export just added, even if it alone is over the limit
+            trim(name);
+        }
+    }
+
+    // Evicts least recently used exports until the cache fits, skipping pinned ones and the given name.
+    private void trim(String keep) {
+        Iterator<Map.Entry<String, Long>> eldest = cachedSizes.entrySet().iterator();
+        while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep) || pinned.containsKey(entry.getKey())) {
+                continue;
+            }
+            eldest.remove();
+            cachedBytes -= entry.getValue();
+            deleteQuietly(exportsPath.resolve(entry.getKey()));
+        }
+    }
+
+    private File await(CompletableFuture<File> render) throws IOException {
+        try {
+            return render.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an export to render", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Export failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warning("Could not delete " + path + ": " + e.getMessage());
+        }
+    }
+}
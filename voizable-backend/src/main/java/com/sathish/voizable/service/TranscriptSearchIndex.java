@@ -0,0 +1,421 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.dto.SubtitleCue;
+import com.sathish.voizable.model.Transcription;
+import com.sathish.voizable.repository.TranscriptionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// Lucene index on local disk with one document per SRT cue, so a match comes back with the cue's
+// timestamps. Transcriptions saved on this node are indexed right away; a catch-up pass walks the
+// transcriptions table by ID for rows saved elsewhere, and a rebuild is the same pass from the start.
+// All writes happen on one thread; searches read the latest refreshed snapshot concurrently.
+@Component
+public class TranscriptSearchIndex {
+
+    private static final Logger logger = Logger.getLogger(TranscriptSearchIndex.class.getName());
+
+    private static final String TRANSCRIPTION_ID = "transcription_id";
+    private static final String FILE_NAME = "file_name";
+    private static final String CUE_INDEX = "cue_index";
+    private static final String START_MS = "start_ms";
+    private static final String END_MS = "end_ms";
+    private static final String TEXT = "text";
+    // Commit user data: highest transcription ID the catch-up pass has indexed
+    private static final String LAST_SEEN_ID = "last_seen_id";
+
+    public static class CueHit {
+        private final int index;
+        private final long startMs;
+        private final long endMs;
+        private final String snippet;
+
+        CueHit(int index, long startMs, long endMs, String snippet) {
+            this.index = index;
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.snippet = snippet;
+        }
+
+        public int getIndex() { return index; }
+        public long getStartMs() { return startMs; }
+        public long getEndMs() { return endMs; }
+        public String getSnippet() { return snippet; }
+    }
+
+    public static class SearchResult {
+        private final long transcriptionId;
+        private final String originalFileName;
+        private final float score;
+        private final List<CueHit> hits = new ArrayList<>();
+        private int matchingCues;
+
+        SearchResult(long transcriptionId, String originalFileName, float score) {
+            this.transcriptionId = transcriptionId;
+            this.originalFileName = originalFileName;
+            this.score = score;
+        }
+
+        public long getTranscriptionId() { return transcriptionId; }
+        public String getOriginalFileName() { return originalFileName; }
+        public float getScore() { return score; }
+        public int getMatchingCues() { return matchingCues; }
+        public List<CueHit> getHits() { return hits; }
+    }
+
+    @Autowired
+    private TranscriptionRepository transcriptionRepository;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.dir:${uploads.dir}/search-index}")
+    private String indexDir;
+
+    @Value("${search.index.catch-up-interval-seconds:30}")
+    private long catchUpIntervalSeconds;
+
+    @Value("${search.index.batch-size:100}")
+    private int batchSize;
+
+    @Value("${search.index.commit-interval-seconds:30}")
+    private long commitIntervalSeconds;
+
+    // Cue hits considered per query before grouping them by transcription
+    @Value("${search.max-cue-hits:1000}")
+    private int maxCueHits;
+
+    @Value("${search.snippet-length:200}")
+    private int snippetLength;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService executor;
+
+    // Only touched on the executor thread
+    private long lastSeenId;
+    // IDs above lastSeenId already indexed on save, so the catch-up pass can skip them
+    private final Set<Long> indexedAhead = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean closing;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path path = Paths.get(indexDir);
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+        if (DirectoryReader.indexExists(directory)) {
+            String stored = SegmentInfos.readLatestCommit(directory).getUserData().get(LAST_SEEN_ID);
+            lastSeenId = stored != null ? Long.parseLong(stored) : 0;
+        }
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transcript-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::checkDatabase);
+        executor.scheduleWithFixedDelay(this::catchUp, 0, catchUpIntervalSeconds, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::commit, commitIntervalSeconds, commitIntervalSeconds, TimeUnit.SECONDS);
+        logger.info("Transcript search index opened at " + path + " (" + writer.getDocStats().numDocs + " cues)");
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        // Interrupting Lucene I/O would close the index files under the writer, so let the current
+        // batch finish instead
+        closing = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    public int getIndexedCueCount() {
+        return enabled ? writer.getDocStats().numDocs : 0;
+    }
+
+    // Queues a freshly saved transcription for indexing.
+    public void indexAsync(Transcription transcription) {
+        if (!enabled || transcription.getId() == null) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                index(transcription);
+                if (transcription.getId() > lastSeenId) {
+                    indexedAhead.add(transcription.getId());
+                }
+                searcherManager.maybeRefresh();
+            } catch (IOException | RuntimeException e) {
+                // The catch-up pass picks it up again
+                logger.warning("Could not index transcription " + transcription.getId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // Re-indexes every transcription in the background; searches keep working from the old
+    // documents until each transcription is replaced. Returns false if a rebuild is already running.
+    public boolean requestRebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            long startTime = System.currentTimeMillis();
+            try {
+                lastSeenId = 0;
+                indexedAhead.clear();
+                Set<Long> seen = new HashSet<>();
+                int indexed = catchUp(seen);
+                deleteMissing(seen);
+                searcherManager.maybeRefresh();
+                commit();
+                logger.info("Rebuilt transcript search index from " + indexed + " transcriptions in "
+                        + (System.currentTimeMillis() - startTime) + " ms");
+            } catch (IOException | RuntimeException e) {
+                logger.severe("Transcript search index rebuild failed: " + e.getMessage());
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    public List<SearchResult> search(String queryText, int maxResults, int hitsPerTranscription) throws IOException {
+        if (!enabled) {
+            return List.of();
+        }
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, TEXT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(queryText);
+        if (query == null) {
+            // Only stop words or operators
+            query = new MatchNoDocsQuery();
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(query, maxCueHits);
+            StoredFields storedFields = searcher.storedFields();
+            // Transcriptions in order of their best cue; their hits are then shown in time order
+            Map<Long, SearchResult> results = new LinkedHashMap<>();
+            for (ScoreDoc scoreDoc : top.scoreDocs) {
+                Document doc = storedFields.document(scoreDoc.doc);
+                long transcriptionId = Long.parseLong(doc.get(TRANSCRIPTION_ID));
+                SearchResult result = results.get(transcriptionId);
+                if (result == null) {
+                    if (results.size() == maxResults) {
+                        continue;
+                    }
+                    result = new SearchResult(transcriptionId, doc.get(FILE_NAME), scoreDoc.score);
+                    results.put(transcriptionId, result);
+                }
+                result.matchingCues++;
+                if (result.hits.size() < hitsPerTranscription) {
+                    result.hits.add(new CueHit(doc.getField(CUE_INDEX).numericValue().intValue(),
+                            doc.getField(START_MS).numericValue().longValue(),
+                            doc.getField(END_MS).numericValue().longValue(),
+                            snippet(doc.get(TEXT))));
+                }
+            }
+            results.values().forEach(result -> result.hits.sort(Comparator.comparingLong(CueHit::getStartMs)));
+            return new ArrayList<>(results.values());
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private void index(Transcription transcription) throws IOException {
+        List<Document> docs = new ArrayList<>();
+        String id = String.valueOf(transcription.getId());
+        String fileName = transcription.getOriginalFileName() != null ? transcription.getOriginalFileName() : "";
+        for (SubtitleCue cue : transcription.getSegments()) {
+            Document doc = new Document();
+            doc.add(new StringField(TRANSCRIPTION_ID, id, Field.Store.YES));
+            doc.add(new StoredField(FILE_NAME, fileName));
+            doc.add(new StoredField(CUE_INDEX, cue.getIndex()));
+            doc.add(new StoredField(START_MS, cue.getStartMs()));
+            doc.add(new StoredField(END_MS, cue.getEndMs()));
+            doc.add(new TextField(TEXT, cue.getText(), Field.Store.YES));
+            docs.add(doc);
+        }
+        // Replaces whatever was indexed for this transcription before
+        writer.updateDocuments(new Term(TRANSCRIPTION_ID, id), docs);
+    }
+
+    private void catchUp() {
+        if (rebuilding.get()) {
+            return;
+        }
+        try {
+            if (catchUp(null) > 0) {
+                searcherManager.maybeRefresh();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Transcript search index catch-up failed: " + e.getMessage());
+        }
+    }
+
+    // Indexes every transcription above lastSeenId, a batch at a time, and returns how many were indexed.
+    private int catchUp(Set<Long> seen) throws IOException {
+        int indexed = 0;
+        while (!closing) {
+            List<Transcription> batch = transcriptionRepository.findByIdGreaterThanOrderByIdAsc(
+                    lastSeenId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Transcription transcription : batch) {
+                if (seen != null) {
+                    seen.add(transcription.getId());
+                }
+                if (!indexedAhead.remove(transcription.getId())) {
+                    index(transcription);
+                    indexed++;
+                }
+                lastSeenId = transcription.getId();
+            }
+        }
+        return indexed;
+    }
+
+    // Drops documents of transcriptions a rebuild did not find in the database.
+    private void deleteMissing(Set<Long> seen) throws IOException {
+        List<Term> missing = new ArrayList<>();
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            Terms terms = MultiTerms.getTerms(reader, TRANSCRIPTION_ID);
+            if (terms == null) {
+                return;
+            }
+            TermsEnum termsEnum = terms.iterator();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                String id = term.utf8ToString();
+                if (!seen.contains(Long.parseLong(id)) && !indexedAhead.contains(Long.parseLong(id))) {
+                    missing.add(new Term(TRANSCRIPTION_ID, id));
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            writer.deleteDocuments(missing.toArray(new Term[0]));
+            logger.info("Removed " + missing.size() + " deleted transcriptions from the search index");
+        }
+    }
+
+    // An index whose cursor is past the newest row was built against another database, e.g. a
+    // recreated schema, so its documents point at the wrong transcriptions.
+    private void checkDatabase() {
+        try {
+            long maxId = transcriptionRepository.findTopByOrderByIdDesc().map(Transcription::getId).orElse(0L);
+            if (lastSeenId > maxId) {
+                logger.warning("Transcript search index is ahead of the database; clearing it");
+                writer.deleteAll();
+                lastSeenId = 0;
+                indexedAhead.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Could not compare the search index with the database: " + e.getMessage());
+        }
+    }
+
+    private void commit() {
+        try {
+            if (writer.hasUncommittedChanges() || !String.valueOf(lastSeenId).equals(committedLastSeenId())) {
+                writer.setLiveCommitData(Map.of(LAST_SEEN_ID, String.valueOf(lastSeenId)).entrySet());
+                writer.commit();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Could not commit the transcript search index: " + e.getMessage());
+        }
+    }
+
+    private String committedLastSeenId() {
+        Iterable<Map.Entry<String, String>> data = writer.getLiveCommitData();
+        if (data != null) {
+            for (Map.Entry<String, String> entry : data) {
+                if (LAST_SEEN_ID.equals(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private String snippet(String text) {
+        String flat = text.replace('\n', ' ');
+        return flat.length() <= snippetLength ? flat : flat.substring(0, snippetLength) + "...";
+    }
+}
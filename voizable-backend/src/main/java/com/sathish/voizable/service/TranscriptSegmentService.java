@@ -0,0 +1,52 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.repository.TranscriptionRepository;
+import com.sathish.voizable.util.SegmentIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Serves segment pages and time ranges of stored transcripts. Transcripts never change once saved,
+// so the decoded, indexed segments of recently read ones are kept in a small LRU; a player seeking
+// through a long transcript decodes it once rather than on every request.
+@Service
+public class TranscriptSegmentService {
+
+    @Autowired
+    private TranscriptionRepository transcriptionRepository;
+
+    private final int maxEntries;
+    private final Map<Long, SegmentIndex> indexes;
+
+    public TranscriptSegmentService(@Value("${transcription.segments.cache-entries:64}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SegmentIndex> eldest) {
+                return size() > TranscriptSegmentService.this.maxEntries;
+            }
+        };
+    }
+
+    public Optional<SegmentIndex> find(Long transcriptionId) {
+        synchronized (indexes) {
+            SegmentIndex index = indexes.get(transcriptionId);
+            if (index != null) {
+                return Optional.of(index);
+            }
+        }
+        // Decoding happens outside the lock; two readers racing on a cold entry both decode once
+        Optional<SegmentIndex> loaded = transcriptionRepository.findWithContentById(transcriptionId)
+                .map(transcription -> new SegmentIndex(transcription.getSegments()));
+        loaded.ifPresent(index -> {
+            synchronized (indexes) {
+                indexes.put(transcriptionId, index);
+            }
+        });
+        return loaded;
+    }
+}
@@ -0,0 +1,234 @@
+package com.sathish.voizable.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// The set of Whisper endpoints the backend dispatches to. Each request goes to the healthy endpoint
+// with the fewest requests in flight, up to a per-endpoint cap; when every endpoint is at its cap the
+// request waits for the next free slot. Endpoints are ejected after repeated failures, whether seen
+// by requests or by the periodic health check, and reinstated once a health check succeeds again.
+@Component
+public class TranscriptionBackendPool {
+
+    private static final Logger logger = Logger.getLogger(TranscriptionBackendPool.class.getName());
+
+    public static class Endpoint {
+        private final URI uri;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Endpoint(URI uri) {
+            this.uri = uri;
+        }
+
+        public URI getUri() { return uri; }
+        public int getOutstanding() { return outstanding.get(); }
+        public boolean isHealthy() { return healthy; }
+    }
+
+    private static class Waiter {
+        private final CompletableFuture<Endpoint> future = new CompletableFuture<>();
+        private final Set<Endpoint> excluded;
+
+        Waiter(Set<Endpoint> excluded) {
+            this.excluded = Set.copyOf(excluded);
+        }
+    }
+
+    @Autowired
+    private HttpClient aiHttpClient;
+
+    // Comma-separated transcription URLs; a single URL behaves exactly like before
+    @Value("${ai.service.transcription.urls:${ai.service.transcription.url}}")
+    private List<String> urls;
+
+    @Value("${ai.service.pool.max-in-flight-per-endpoint:4}")
+    private int maxInFlightPerEndpoint;
+
+    // Path probed on each endpoint's host (the AI service answers GET /); any response below 500 counts as healthy
+    @Value("${ai.service.pool.health-path:/}")
+    private String healthPath;
+
+    @Value("${ai.service.pool.health-check-interval-ms:10000}")
+    private long healthCheckIntervalMs;
+
+    @Value("${ai.service.pool.health-check-timeout-ms:2000}")
+    private long healthCheckTimeoutMs;
+
+    @Value("${ai.service.pool.failure-threshold:3}")
+    private int failureThreshold;
+
+    // How long a request may wait for a free slot when every endpoint is at its cap
+    @Value("${ai.service.pool.acquire-timeout-ms:120000}")
+    private long acquireTimeoutMs;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService healthChecker;
+
+    @PostConstruct
+    void init() {
+        for (String url : urls) {
+            if (!url.isBlank()) {
+                endpoints.add(new Endpoint(URI.create(url.trim())));
+            }
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("No transcription endpoints configured in ai.service.transcription.urls");
+        }
+        logger.info("Transcription backends: " + endpoints.stream().map(e -> e.uri.toString()).toList());
+
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ai-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, healthCheckIntervalMs, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        healthChecker.shutdownNow();
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    // Claims a slot on the least loaded endpoint outside the excluded set. The future completes once
+    // a slot is free; the caller must hand it back with release().
+    public CompletableFuture<Endpoint> acquire(Set<Endpoint> excluded) {
+        Endpoint endpoint = tryAcquire(excluded);
+        if (endpoint != null) {
+            return CompletableFuture.completedFuture(endpoint);
+        }
+        Waiter waiter = new Waiter(excluded);
+        waiters.add(waiter);
+        // A slot may have been released between the attempt above and joining the queue
+        handOffToWaiters();
+        return waiter.future.orTimeout(acquireTimeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(
+                        new IOException("Timed out waiting for a free transcription backend", error)));
+    }
+
+    // Frees the slot and records how the request went. Connection failures and 5xx responses count
+    // against the endpoint; anything else shows it is up.
+    public void release(Endpoint endpoint, boolean endpointFailed) {
+        endpoint.outstanding.decrementAndGet();
+        if (endpointFailed) {
+            recordFailure(endpoint, "request failed");
+        } else {
+            recordSuccess(endpoint);
+        }
+        handOffToWaiters();
+    }
+
+    private Endpoint tryAcquire(Set<Endpoint> excluded) {
+        List<Endpoint> candidates = endpoints.stream()
+                .filter(endpoint -> endpoint.healthy && !excluded.contains(endpoint))
+                .toList();
+        if (candidates.isEmpty()) {
+            // Fail open: a dead pool should surface the backends' own errors, not a routing error
+            candidates = endpoints.stream().filter(endpoint -> !excluded.contains(endpoint)).toList();
+        }
+        while (true) {
+            Endpoint best = candidates.stream()
+                    .filter(endpoint -> endpoint.outstanding.get() < maxInFlightPerEndpoint)
+                    .min(Comparator.comparingInt(endpoint -> endpoint.outstanding.get()))
+                    .orElse(null);
+            if (best == null) {
+                return null;
+            }
+            int current = best.outstanding.get();
+            if (current < maxInFlightPerEndpoint && best.outstanding.compareAndSet(current, current + 1)) {
+                return best;
+            }
+        }
+    }
+
+    // Hands free slots to queued requests in arrival order, skipping any whose excluded backends are
+    // the only ones with room.
+    private void handOffToWaiters() {
+        for (Waiter waiter : waiters) {
+            if (waiter.future.isDone()) {
+                // Timed out while queued
+                waiters.remove(waiter);
+                continue;
+            }
+            Endpoint endpoint = tryAcquire(waiter.excluded);
+            if (endpoint == null) {
+                if (waiter.excluded.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            if (!waiters.remove(waiter) || !waiter.future.complete(endpoint)) {
+                // Another thread served or expired it first
+                endpoint.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    private void recordSuccess(Endpoint endpoint) {
+        endpoint.consecutiveFailures.set(0);
+        if (!endpoint.healthy) {
+            endpoint.healthy = true;
+            logger.info("Transcription backend " + endpoint.uri + " reinstated");
+            handOffToWaiters();
+        }
+    }
+
+    private void recordFailure(Endpoint endpoint, String reason) {
+        int failures = endpoint.consecutiveFailures.incrementAndGet();
+        if (endpoint.healthy && failures >= failureThreshold) {
+            endpoint.healthy = false;
+            logger.warning("Ejecting transcription backend " + endpoint.uri + " after " + failures
+                    + " consecutive failures (" + reason + ")");
+        }
+    }
+
+    private void checkHealth() {
+        for (Endpoint endpoint : endpoints) {
+            HttpRequest probe = HttpRequest.newBuilder(endpoint.uri.resolve(healthPath))
+                    .timeout(Duration.ofMillis(healthCheckTimeoutMs))
+                    .GET()
+                    .build();
+            aiHttpClient.sendAsync(probe, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() < 500) {
+                            recordSuccess(endpoint);
+                        } else {
+                            recordFailure(endpoint, error != null ? error.getClass().getSimpleName()
+                                    : "health check returned " + response.statusCode());
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.model.Transcription;
+import com.sathish.voizable.repository.TranscriptionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+// Content-addressed cache of finished transcripts, keyed by the SHA-256 of the uploaded file.
+// A small in-memory LRU sits in front of the indexed content_hash column on the transcriptions table.
+@Component
+public class TranscriptionCache {
+
+    private static final Logger logger = Logger.getLogger(TranscriptionCache.class.getName());
+
+    public static class CachedTranscript {
+        private final String plainText;
+        private final String srtContent;
+
+        public CachedTranscript(String plainText, String srtContent) {
+            this.plainText = plainText;
+            this.srtContent = srtContent;
+        }
+
+        public String getPlainText() { return plainText; }
+        public String getSrtContent() { return srtContent; }
+    }
+
+    @Autowired
+    private TranscriptionRepository transcriptionRepository;
+
+    @Value("${transcription.cache.enabled:true}")
+    private boolean enabled;
+
+    private final int maxEntries;
+    private final Map<String, CachedTranscript> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TranscriptionCache(@Value("${transcription.cache.max-entries:256}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        // Access-ordered LinkedHashMap gives us LRU eviction for free
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTranscript> eldest) {
+                return size() > TranscriptionCache.this.maxEntries;
+            }
+        };
+    }
+
+    public Optional<CachedTranscript> lookup(String contentHash) {
+        if (!enabled || contentHash == null) {
+            return Optional.empty();
+        }
+
+        CachedTranscript cached;
+        synchronized (entries) {
+            cached = entries.get(contentHash);
+        }
+        if (cached == null) {
+            // Fall back to the database tier and promote the result into memory
+            Optional<Transcription> stored = transcriptionRepository.findFirstByContentHashOrderByIdDesc(contentHash);
+            if (stored.isPresent()) {
+                cached = new CachedTranscript(stored.get().getPlainText(), stored.get().getSrtContent());
+                put(contentHash, cached);
+            }
+        }
+
+        if (cached == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        logger.info("Transcription cache hit for " + contentHash + " (hits=" + hits.get() + ", misses=" + misses.get() + ")");
+        return Optional.of(cached);
+    }
+
+    public void put(String contentHash, String plainText, String srtContent) {
+        if (!enabled || contentHash == null) {
+            return;
+        }
+        put(contentHash, new CachedTranscript(plainText, srtContent));
+    }
+
+    private void put(String contentHash, CachedTranscript transcript) {
+        synchronized (entries) {
+            entries.put(contentHash, transcript);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -1,34 +1,55 @@
 package com.sathish.voizable.service;
 
+import com.sathish.voizable.config.WorkerThreads;
+import com.sathish.voizable.dto.SubtitleCue;
 import com.sathish.voizable.dto.TranscriptionResponseDTO;
+import com.sathish.voizable.model.TranscriptContent;
 import com.sathish.voizable.model.Transcription;
 import com.sathish.voizable.repository.TranscriptionRepository;
+import com.sathish.voizable.util.BoundedExecutor;
+import com.sathish.voizable.util.HashUtils;
+import com.sathish.voizable.util.SrtUtils;
+import com.sathish.voizable.util.TranscriptCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Objects;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
 
 @Service
 public class TranscriptionService {
 
+    private static final Logger logger = Logger.getLogger(TranscriptionService.class.getName());
+
+    @Autowired
+    private AiServiceClient aiServiceClient;
+
     @Autowired
-    private RestTemplate restTemplate;
+    private ChunkedTranscriptionEngine chunkedTranscriptionEngine;
 
     @Autowired
     private FFmpegService ffmpegService;
@@ -36,84 +57,396 @@ public class TranscriptionService {
     @Autowired
     private TranscriptionRepository transcriptionRepository;
 
-    @Value("${ai.service.transcription.url}")
-    private String aiServiceUrl;
+    @Autowired
+    private TranscriptionCache transcriptionCache;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private TranscriptSearchIndex transcriptSearchIndex;
+
+    @Autowired
+    private WorkerThreads workerThreads;
 
     @Value("${uploads.dir}")
     private String uploadsDir;
 
+    // Workers for the blocking steps of async transcriptions started from request threads
+    @Value("${transcription.async.pool-size:4}")
+    private int asyncPoolSize;
+
+    private BoundedExecutor asyncExecutor;
+
+    // "file" spools the upload and a WAV to uploads.dir; "streaming" pipes the upload through FFmpeg
+    // straight into the AI service request body without touching disk; "chunked" pipes raw PCM
+    // into the ChunkedTranscriptionEngine, which transcribes overlapping windows in parallel.
+    @Value("${transcription.pipeline.mode:file}")
+    private String pipelineMode;
+
+    // "inline" keeps plain text and SRT as TEXT columns; "compressed" stores the segments once,
+    // deflated, in transcript_contents and derives both from them when read.
+    @Value("${transcription.storage.mode:inline}")
+    private String storageMode;
+
+    @Value("${transcription.storage.compression-level:6}")
+    private int compressionLevel;
+
+    // Multipart part backed by a one-shot stream. It has no known length, so the request goes out
+    // with chunked encoding while the stream is still being produced.
+    private static class StreamingAudioResource extends InputStreamResource {
+        private final String filename;
+
+        StreamingAudioResource(InputStream audioStream, String filename) {
+            super(audioStream);
+            this.filename = filename;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+    }
+
+    // The media being transcribed: either a raw multipart upload, which may not be on disk yet,
+    // or an upload the StagingStore has already spooled and hashed.
+    private static class MediaSource {
+        private final MultipartFile multipartFile;
+        private final String originalFileName;
+        private final String contentType;
+        private Path path;
+        private String contentHash;
+
+        private MediaSource(MultipartFile multipartFile, String originalFileName, String contentType,
+                            Path path, String contentHash) {
+            this.multipartFile = multipartFile;
+            this.originalFileName = originalFileName;
+            this.contentType = contentType;
+            this.path = path;
+            this.contentHash = contentHash;
+        }
+
+        static MediaSource of(MultipartFile file) {
+            return new MediaSource(file, file.getOriginalFilename(), file.getContentType(), null, null);
+        }
+
+        static MediaSource of(StagedUpload upload) {
+            return new MediaSource(null, upload.getOriginalFileName(), upload.getContentType(),
+                    upload.getPath(), upload.getContentHash());
+        }
+
+        boolean isVideo() {
+            return contentType != null && contentType.startsWith("video");
+        }
+
+        InputStream openStream() throws IOException {
+            return path != null ? Files.newInputStream(path) : multipartFile.getInputStream();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        asyncExecutor = new BoundedExecutor(workerThreads.newUnboundedExecutor("transcription-worker-"),
+                asyncPoolSize, new ConcurrentLinkedQueue<>());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        asyncExecutor.shutdownNow();
+    }
+
     public Transcription transcribeAndSave(MultipartFile file) throws IOException, InterruptedException {
-        // Start a timer for the whole process
-        long totalStartTime = System.currentTimeMillis();
-        System.out.println("INFO: Transcription process started for file: " + file.getOriginalFilename());
+        return transcribeAndSave(MediaSource.of(file));
+    }
+
+    // Non-blocking variant for request threads. In file mode the upload is spooled on the caller's
+    // thread, FFmpeg and the save run on the transcription workers, and nothing waits for the AI
+    // service. The streaming and chunked pipelines run on a worker as a whole.
+    public CompletableFuture<Transcription> transcribeAndSaveAsync(MultipartFile file) {
+        MediaSource source = MediaSource.of(file);
+        if (!"file".equalsIgnoreCase(pipelineMode)) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return transcribeAndSave(source);
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+            }, asyncExecutor);
+        }
 
-        File audioFile = null;
+        logger.info("Transcription process started for file: " + source.originalFileName);
+        CompletableFuture<Transcription> result;
         try {
-            // Step 1: Prepare the audio file
-            String contentType = file.getContentType();
-            if (contentType != null && contentType.startsWith("video")) {
-                // Start a timer for the FFmpeg step
-                long ffmpegStartTime = System.currentTimeMillis();
-                System.out.println("INFO: It's a video. Extracting audio with FFmpeg...");
-                audioFile = ffmpegService.extractAudio(file);
-                long ffmpegEndTime = System.currentTimeMillis();
-                System.out.println("INFO: FFmpeg audio extraction finished. Time taken: " + (ffmpegEndTime - ffmpegStartTime) + " ms");
+            // Steps 1 and 2: spool and hash the upload, then check the cache
+            File spooledFile = spoolWithHash(source);
+            Optional<Transcription> cached = findCached(source);
+            if (cached.isPresent()) {
+                deleteTempFileQuietly(spooledFile);
+                result = CompletableFuture.completedFuture(cached.get());
             } else {
-                // This part handles audio files directly
-                System.out.println("INFO: It's an audio file. Saving it temporarily...");
-                Path uploadsPath = Paths.get(uploadsDir);
-                if (!Files.exists(uploadsPath)) {
-                    Files.createDirectories(uploadsPath);
-                }
-                String tempAudioFileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-                audioFile = uploadsPath.resolve(tempAudioFileName).toFile();
-                file.transferTo(audioFile);
-                System.out.println("INFO: Temporary audio file saved.");
+                result = transcribeFromPathAsync(source, spooledFile, asyncExecutor);
+            }
+        } catch (IOException | RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result;
+    }
+
+    // Transcribes an upload that is already staged on disk. The caller keeps ownership of the file.
+    public Transcription transcribeAndSave(StagedUpload upload) throws IOException, InterruptedException {
+        return transcribeAndSave(MediaSource.of(upload));
+    }
+
+    // Transcribes a staged upload on a transcription worker and releases the caller's reference
+    // when done.
+    public CompletableFuture<Transcription> transcribeAndSaveAsync(StagedUpload upload) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return transcribeAndSave(upload);
+            } catch (IOException | InterruptedException e) {
+                throw new CompletionException(e);
             }
+        }, asyncExecutor).whenComplete((transcription, error) -> upload.release());
+    }
 
-            // Step 2: Call the Python AI Service
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+    private Transcription transcribeAndSave(MediaSource source) throws IOException, InterruptedException {
+        logger.info("Transcription process started for file: " + source.originalFileName);
+        if ("streaming".equalsIgnoreCase(pipelineMode)) {
+            return transcribeStreaming(source);
+        }
+        if ("chunked".equalsIgnoreCase(pipelineMode)) {
+            return transcribeChunked(source);
+        }
+        return transcribeFromFile(source);
+    }
 
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new FileSystemResource(audioFile));
+    private Transcription transcribeFromFile(MediaSource source) throws IOException, InterruptedException {
+        // Step 1: Make sure the upload is on disk once, hashing it on the way through
+        File spooledFile = null;
+        if (source.path == null) {
+            spooledFile = spoolWithHash(source);
+        }
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+        // Step 2: Re-uploads of the same media skip FFmpeg and the AI service entirely
+        Optional<Transcription> cached = findCached(source);
+        if (cached.isPresent()) {
+            deleteTempFile(spooledFile);
+            return cached.get();
+        }
+        return transcribeFromPath(source, spooledFile);
+    }
 
-            // Start a timer for the AI service call
-            long apiCallStartTime = System.currentTimeMillis();
-            System.out.println("INFO: Calling Python AI service at " + aiServiceUrl + "...");
-            ResponseEntity<TranscriptionResponseDTO> response = restTemplate.postForEntity(
-                    aiServiceUrl,
-                    requestEntity,
-                    TranscriptionResponseDTO.class
-            );
-            long apiCallEndTime = System.currentTimeMillis();
-            System.out.println("INFO: Python AI service call finished. Time taken: " + (apiCallEndTime - apiCallStartTime) + " ms");
+    private Transcription transcribeFromPath(MediaSource source, File spooledFile) throws IOException, InterruptedException {
+        // Callers of the blocking API already run on a worker, so FFmpeg runs right here
+        try {
+            return transcribeFromPathAsync(source, spooledFile, Runnable::run).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Transcription failed: " + cause.getMessage(), cause);
+        }
+    }
 
+    // FFmpeg extraction and the database save run on the given executor; the AI service call is
+    // asynchronous, so no thread is held while Whisper transcribes.
+    private CompletableFuture<Transcription> transcribeFromPathAsync(MediaSource source, File spooledFile, Executor executor) {
+        AtomicReference<File> audioFile = new AtomicReference<>();
 
-            // Step 3: Create and save the Transcription entity to the database
-            System.out.println("INFO: Saving transcription to database...");
-            TranscriptionResponseDTO responseDTO = Objects.requireNonNull(response.getBody());
-            Transcription transcription = new Transcription();
-            transcription.setOriginalFileName(file.getOriginalFilename());
-            transcription.setPlainText(responseDTO.getPlainText());
-            transcription.setSrtContent(responseDTO.getSrtContent());
+        // Step 3: Prepare the audio file
+        CompletableFuture<File> audioInput;
+        if (source.isVideo()) {
+            audioInput = CompletableFuture.supplyAsync(() -> {
+                logger.fine("It's a video. Extracting audio with FFmpeg...");
+                try {
+                    audioFile.set(pipelineMetrics.time(PipelineMetrics.FFMPEG_EXTRACT, () -> ffmpegService.extractAudio(source.path)));
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+                return audioFile.get();
+            }, executor);
+        } else {
+            // Audio files can be sent to the AI service as they were uploaded
+            logger.fine("It's an audio file. Sending the upload directly.");
+            audioInput = CompletableFuture.completedFuture(source.path.toFile());
+        }
+
+        return audioInput
+                // Step 4: Call the Python AI Service
+                .thenCompose(input -> aiServiceClient.transcribeAsync(new FileSystemResource(input)))
+                // Step 5: Create and save the Transcription entity to the database
+                .thenApplyAsync(responseDTO -> saveNewTranscription(source, responseDTO), executor)
+                // Step 6: Clean up the temporary files
+                .whenComplete((transcription, error) -> {
+                    deleteTempFileQuietly(spooledFile);
+                    deleteTempFileQuietly(audioFile.get());
+                });
+    }
+
+    private Transcription transcribeStreaming(MediaSource source) throws IOException, InterruptedException {
+        // Step 1: Re-uploads of the same media skip FFmpeg and the AI service entirely
+        Optional<Transcription> cached = findCached(source);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // Step 2: Audio uploads go to the AI service as-is, videos are piped through FFmpeg
+        if (!source.isVideo()) {
+            logger.fine("It's an audio file. Streaming it to the AI service...");
+            try (InputStream in = source.openStream()) {
+                TranscriptionResponseDTO responseDTO = aiServiceClient.transcribe(new StreamingAudioResource(in, source.originalFileName));
+                return saveNewTranscription(source, responseDTO);
+            }
+        }
 
-            Transcription savedTranscription = transcriptionRepository.save(transcription);
-            System.out.println("INFO: Saved to database with ID: " + savedTranscription.getId());
+        logger.fine("It's a video. Piping audio from FFmpeg to the AI service...");
+        try (FFmpegService.AudioPipe pipe = source.path != null
+                ? ffmpegService.openAudioPipe(source.path)
+                : ffmpegService.openAudioPipe(source.openStream())) {
+            if (pipe.hasOutput()) {
+                TranscriptionResponseDTO responseDTO = aiServiceClient.transcribe(new StreamingAudioResource(pipe.getAudioStream(), "audio.wav"));
+                pipe.awaitCompletion();
+                return saveNewTranscription(source, responseDTO);
+            }
+            if (source.path != null) {
+                pipe.awaitCompletion();
+                throw new IOException("FFmpeg produced no audio for " + source.originalFileName);
+            }
+        }
+        // Containers that are not streamable need a seekable input, so spool this one. The pipe is
+        // closed by now, so FFmpeg is not kept waiting while the upload is spooled.
+        logger.fine("FFmpeg produced no audio from the pipe. Falling back to file mode.");
+        return transcribeFromPath(source, spoolWithHash(source));
+    }
 
-            return savedTranscription;
+    private Transcription transcribeChunked(MediaSource source) throws IOException, InterruptedException {
+        // Step 1: Re-uploads of the same media skip FFmpeg and the AI service entirely
+        Optional<Transcription> cached = findCached(source);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
 
+        // Step 2: Decode to raw PCM and let the engine window and dispatch it as it arrives
+        logger.fine("Decoding to PCM for chunked transcription...");
+        File spooledFile = null;
+        FFmpegService.AudioPipe pipe = source.path != null
+                ? ffmpegService.openPcmPipe(source.path)
+                : ffmpegService.openPcmPipe(source.openStream());
+        try {
+            if (!pipe.hasOutput()) {
+                if (source.path != null) {
+                    pipe.awaitCompletion();
+                    throw new IOException("FFmpeg produced no audio for " + source.originalFileName);
+                }
+                // Containers that are not streamable need a seekable input, so spool this one
+                logger.fine("FFmpeg produced no audio from the pipe. Decoding from a spooled file.");
+                pipe.close();
+                spooledFile = spoolWithHash(source);
+                pipe = ffmpegService.openPcmPipe(source.path);
+            }
+            TranscriptionResponseDTO responseDTO = chunkedTranscriptionEngine.transcribe(pipe.getAudioStream());
+            pipe.awaitCompletion();
+            return saveNewTranscription(source, responseDTO);
         } finally {
-            // Step 4: Clean up the temporary audio file
-            if (audioFile != null && audioFile.exists()) {
-                Files.delete(audioFile.toPath());
-                System.out.println("INFO: Cleaned up temporary audio file: " + audioFile.getName());
+            pipe.close();
+            deleteTempFile(spooledFile);
+        }
+    }
+
+    private Optional<Transcription> findCached(MediaSource source) throws IOException {
+        if (source.contentHash == null) {
+            // Hash the upload straight from the container's multipart storage
+            try (InputStream in = source.openStream()) {
+                source.contentHash = HashUtils.sha256(in);
             }
-            // Stop the timer for the whole process and print the total time
-            long totalEndTime = System.currentTimeMillis();
-            System.out.println("INFO: Transcription process finished. Total time: " + (totalEndTime - totalStartTime) + " ms");
+        }
+        Optional<TranscriptionCache.CachedTranscript> cached = transcriptionCache.lookup(source.contentHash);
+        if (cached.isEmpty()) {
+            return Optional.empty();
+        }
+        logger.fine("Found cached transcript for upload hash " + source.contentHash);
+        return Optional.of(saveTranscription(source, cached.get().getPlainText(), cached.get().getSrtContent()));
+    }
+
+    private Transcription saveNewTranscription(MediaSource source, TranscriptionResponseDTO responseDTO) {
+        Transcription savedTranscription = saveTranscription(source,
+                responseDTO.getPlainText(), responseDTO.getSrtContent());
+        transcriptionCache.put(source.contentHash, responseDTO.getPlainText(), responseDTO.getSrtContent());
+        return savedTranscription;
+    }
+
+    private Transcription saveTranscription(MediaSource source, String plainText, String srtContent) {
+        logger.fine("Saving transcription to database...");
+        Transcription transcription = new Transcription();
+        transcription.setOriginalFileName(source.originalFileName);
+        transcription.setContentHash(source.contentHash);
+        // Stored in start order so segment deltas stay small and range lookups can binary search
+        List<SubtitleCue> cues = SrtUtils.parse(srtContent);
+        cues.sort(Comparator.comparingLong(SubtitleCue::getStartMs));
+        transcription.setSegmentCount(cues.size());
+        transcription.setDurationMs(cues.stream().mapToLong(SubtitleCue::getEndMs).max().orElse(0));
+        if ("compressed".equalsIgnoreCase(storageMode)) {
+            transcription.setContent(new TranscriptContent(TranscriptCodec.encode(cues, compressionLevel)));
+        } else {
+            transcription.setPlainText(plainText);
+            transcription.setSrtContent(srtContent);
+        }
+
+        Transcription savedTranscription = pipelineMetrics.timeUnchecked(PipelineMetrics.DB_SAVE,
+                () -> transcriptionRepository.save(transcription));
+        logger.fine("Saved to database with ID: " + savedTranscription.getId());
+        transcriptSearchIndex.indexAsync(savedTranscription);
+        return savedTranscription;
+    }
+
+    // Copies a multipart upload into uploads.dir, records its SHA-256 and points the source at the copy.
+    private File spoolWithHash(MediaSource source) throws IOException, InterruptedException {
+        Path uploadsPath = Paths.get(uploadsDir);
+        if (!Files.exists(uploadsPath)) {
+            Files.createDirectories(uploadsPath);
+        }
+        Path target = uploadsPath.resolve(UUID.randomUUID().toString() + "_" + source.originalFileName);
+        MessageDigest digest = HashUtils.newSha256();
+        pipelineMetrics.time(PipelineMetrics.UPLOAD_SPOOL, () -> {
+            try (InputStream in = new DigestInputStream(source.multipartFile.getInputStream(), digest)) {
+                return Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        });
+        source.path = target;
+        source.contentHash = HashUtils.toHex(digest);
+        return target.toFile();
+    }
+
+    private void deleteTempFileQuietly(File tempFile) {
+        try {
+            deleteTempFile(tempFile);
+        } catch (IOException e) {
+            logger.warning("Could not delete temporary file " + tempFile.getName() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deleteTempFile(File tempFile) throws IOException, InterruptedException {
+        if (tempFile != null && tempFile.exists()) {
+            pipelineMetrics.time(PipelineMetrics.CLEANUP, () -> Files.deleteIfExists(tempFile.toPath()));
+            logger.fine("Cleaned up temporary file: " + tempFile.getName());
         }
     }
 }
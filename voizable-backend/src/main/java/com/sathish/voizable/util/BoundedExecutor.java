@@ -0,0 +1,63 @@
+package com.sathish.voizable.util;
+
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+// Runs at most maxConcurrent tasks at a time on an unbounded executor and holds the rest in the given
+// queue, which decides the order they start in. The limit is a semaphore rather than a pool size, so
+// it works the same whether the underlying threads are platform or virtual threads.
+public class BoundedExecutor implements Executor {
+
+    private final ExecutorService threads;
+    private final Semaphore permits;
+    private final Queue<Runnable> queue;
+
+    public BoundedExecutor(ExecutorService threads, int maxConcurrent, Queue<Runnable> queue) {
+        this.threads = threads;
+        this.permits = new Semaphore(maxConcurrent);
+        this.queue = queue;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queue.add(task);
+        dispatch();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public void shutdownNow() {
+        queue.clear();
+        threads.shutdownNow();
+    }
+
+    // Starts queued tasks while permits are free. Re-checking the queue after giving a permit back
+    // means a task queued while another thread held that permit is never stranded.
+    private void dispatch() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Runnable task = queue.poll();
+            if (task == null) {
+                permits.release();
+                continue;
+            }
+            try {
+                threads.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                        dispatch();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Rejected during shutdown
+                permits.release();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.sathish.voizable.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// SHA-256 helpers used to content-address uploads.
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available in this JVM", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Reads the stream to the end and returns its hex SHA-256.
+    public static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream digestStream = new DigestInputStream(in, digest)) {
+            digestStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return toHex(digest);
+    }
+}
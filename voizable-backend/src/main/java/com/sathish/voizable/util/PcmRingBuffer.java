@@ -0,0 +1,48 @@
+package com.sathish.voizable.util;
+
+// Fixed-size ring of the most recent audio bytes. Positions are absolute byte offsets from the
+// start of the stream; only the last capacity bytes can be read back. Not thread-safe.
+public class PcmRingBuffer {
+
+    private final byte[] buffer;
+    private long position;
+
+    public PcmRingBuffer(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public void write(byte[] data, int offset, int length) {
+        // Only the tail of a write larger than the ring survives
+        if (length > buffer.length) {
+            offset += length - buffer.length;
+            position += length - buffer.length;
+            length = buffer.length;
+        }
+        int start = (int) (position % buffer.length);
+        int first = Math.min(length, buffer.length - start);
+        System.arraycopy(data, offset, buffer, start, first);
+        System.arraycopy(data, offset + first, buffer, 0, length - first);
+        position += length;
+    }
+
+    // Total bytes written since the stream started
+    public long getPosition() {
+        return position;
+    }
+
+    public long getOldestPosition() {
+        return Math.max(0, position - buffer.length);
+    }
+
+    public byte[] copy(long from, long to) {
+        if (from < getOldestPosition() || to > position || from > to) {
+            throw new IllegalArgumentException("Range " + from + "-" + to + " is not in the buffer");
+        }
+        byte[] out = new byte[(int) (to - from)];
+        int start = (int) (from % buffer.length);
+        int first = Math.min(out.length, buffer.length - start);
+        System.arraycopy(buffer, start, out, 0, first);
+        System.arraycopy(buffer, 0, out, first, out.length - first);
+        return out;
+    }
+}
@@ -0,0 +1,77 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Immutable, start-ordered view of a transcript's cues for paging and time-range lookups.
+// maxEndMs[i] is the latest end time among cues 0..i, so it never decreases and can be binary
+// searched even when cues overlap.
+public final class SegmentIndex {
+
+    private final List<SubtitleCue> cues;
+    private final long[] startMs;
+    private final long[] maxEndMs;
+
+    public SegmentIndex(List<SubtitleCue> segments) {
+        List<SubtitleCue> sorted = new ArrayList<>(segments);
+        sorted.sort(Comparator.comparingLong(SubtitleCue::getStartMs));
+        this.cues = List.copyOf(sorted);
+        this.startMs = new long[cues.size()];
+        this.maxEndMs = new long[cues.size()];
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < cues.size(); i++) {
+            startMs[i] = cues.get(i).getStartMs();
+            maxEnd = Math.max(maxEnd, cues.get(i).getEndMs());
+            maxEndMs[i] = maxEnd;
+        }
+    }
+
+    public int size() {
+        return cues.size();
+    }
+
+    public long getDurationMs() {
+        return cues.isEmpty() ? 0 : maxEndMs[cues.size() - 1];
+    }
+
+    public List<SubtitleCue> page(int offset, int limit) {
+        int from = Math.min(offset, cues.size());
+        return cues.subList(from, Math.min(cues.size(), from + limit));
+    }
+
+    // Cues overlapping [fromMs, toMs): everything before the first index is over by fromMs and
+    // everything from the last index on starts at or after toMs. Cues in between that ended
+    // earlier, which only happens when cues overlap, are dropped.
+    public List<SubtitleCue> range(long fromMs, long toMs) {
+        int first = firstIndexAbove(maxEndMs, fromMs);
+        int last = firstIndexAtOrAbove(startMs, toMs);
+        List<SubtitleCue> result = new ArrayList<>(Math.max(0, last - first));
+        for (int i = first; i < last; i++) {
+            if (cues.get(i).getEndMs() > fromMs) {
+                result.add(cues.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static int firstIndexAbove(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] > value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static int firstIndexAtOrAbove(long[] sorted, long value) {
+        return firstIndexAbove(sorted, value - 1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Parsing and formatting for the SRT documents produced by the AI service.
+public final class SrtUtils {
+
+    private static final Pattern TIMING = Pattern.compile(
+            "(\\d+):(\\d{2}):(\\d{2})[,.](\\d{1,3})\\s*-->\\s*(\\d+):(\\d{2}):(\\d{2})[,.](\\d{1,3})");
+
+    private SrtUtils() {
+    }
+
+    public static List<SubtitleCue> parse(String srtContent) {
+        List<SubtitleCue> cues = new ArrayList<>();
+        if (srtContent == null || srtContent.isBlank()) {
+            return cues;
+        }
+
+        String[] lines = srtContent.replace("\r\n", "\n").replace('\r', '\n').split("\n");
+        int i = 0;
+        while (i < lines.length) {
+            // Skip blank lines and cue numbers until we reach a timing line
+            Matcher matcher = TIMING.matcher(lines[i]);
+            if (!matcher.find()) {
+                i++;
+                continue;
+            }
+            long startMs = toMillis(matcher, 1);
+            long endMs = toMillis(matcher, 5);
+            i++;
+
+            StringBuilder text = new StringBuilder();
+            while (i < lines.length && !lines[i].isBlank()) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append(lines[i].strip());
+                i++;
+            }
+            cues.add(new SubtitleCue(cues.size() + 1, startMs, endMs, text.toString()));
+        }
+        return cues;
+    }
+
+    public static String format(List<SubtitleCue> cues) {
+        StringBuilder srt = new StringBuilder();
+        for (SubtitleCue cue : cues) {
+            srt.append(cue.getIndex()).append('\n')
+                    .append(formatTimestamp(cue.getStartMs())).append(" --> ").append(formatTimestamp(cue.getEndMs())).append('\n')
+                    .append(cue.getText()).append('\n')
+                    .append('\n');
+        }
+        return srt.toString();
+    }
+
+    public static String toWebVtt(List<SubtitleCue> cues) {
+        StringBuilder vtt = new StringBuilder("WEBVTT\n\n");
+        for (SubtitleCue cue : cues) {
+            vtt.append(cue.getIndex()).append('\n')
+                    .append(formatVttTimestamp(cue.getStartMs())).append(" --> ").append(formatVttTimestamp(cue.getEndMs())).append('\n')
+                    .append(cue.getText()).append('\n')
+                    .append('\n');
+        }
+        return vtt.toString();
+    }
+
+    // Formats milliseconds as HH:MM:SS.mmm
+    public static String formatVttTimestamp(long millis) {
+        return formatTimestamp(millis).replace(',', '.');
+    }
+
+    // Formats milliseconds as HH:MM:SS,mmm
+    public static String formatTimestamp(long millis) {
+        long hours = millis / 3_600_000;
+        long minutes = (millis / 60_000) % 60;
+        long seconds = (millis / 1000) % 60;
+        long ms = millis % 1000;
+        // Hand-padded rather than String.format, which dominates the cost of exporting long transcripts
+        StringBuilder timestamp = new StringBuilder(12);
+        pad(timestamp, hours, 2).append(':');
+        pad(timestamp, minutes, 2).append(':');
+        pad(timestamp, seconds, 2).append(',');
+        return pad(timestamp, ms, 3).toString();
+    }
+
+    static StringBuilder pad(StringBuilder out, long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            out.append('0');
+        }
+        return out.append(digits);
+    }
+
+    private static long toMillis(Matcher matcher, int group) {
+        long hours = Long.parseLong(matcher.group(group));
+        long minutes = Long.parseLong(matcher.group(group + 1));
+        long seconds = Long.parseLong(matcher.group(group + 2));
+        String fraction = matcher.group(group + 3);
+        // "5" means 500 ms and "05" means 50 ms
+        long ms = Long.parseLong((fraction + "00").substring(0, 3));
+        return ((hours * 60 + minutes) * 60 + seconds) * 1000 + ms;
+    }
+}
@@ -0,0 +1,134 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Optional;
+
+// Subtitle formats transcripts can be exported to. Each one writes a header, then one cue at a
+// time, then a footer, so a document of any length is produced without holding it in memory.
+public enum SubtitleFormat {
+
+    SRT("srt", "application/x-subrip") {
+        @Override
+        public void writeCue(Writer out, SubtitleCue cue) throws IOException {
+            out.write(cue.getIndex() + "\n"
+                    + SrtUtils.formatTimestamp(cue.getStartMs()) + " --> " + SrtUtils.formatTimestamp(cue.getEndMs()) + "\n"
+                    + cue.getText() + "\n\n");
+        }
+    },
+
+    VTT("vtt", "text/vtt") {
+        @Override
+        public void writeHeader(Writer out) throws IOException {
+            out.write("WEBVTT\n\n");
+        }
+
+        @Override
+        public void writeCue(Writer out, SubtitleCue cue) throws IOException {
+            out.write(cue.getIndex() + "\n"
+                    + SrtUtils.formatVttTimestamp(cue.getStartMs()) + " --> " + SrtUtils.formatVttTimestamp(cue.getEndMs()) + "\n"
+                    + escapeMarkup(cue.getText()) + "\n\n");
+        }
+    },
+
+    // Advanced SubStation Alpha with a single style matching the burned-in captions
+    ASS("ass", "text/x-ssa") {
+        @Override
+        public void writeHeader(Writer out) throws IOException {
+            out.write("[Script Info]\n"
+                    + "ScriptType: v4.00+\n"
+                    + "PlayResX: 384\n"
+                    + "PlayResY: 288\n"
+                    + "WrapStyle: 0\n\n"
+                    + "[V4+ Styles]\n"
+                    + "Format: Name, Fontname, Fontsize, PrimaryColour, SecondaryColour, OutlineColour, BackColour, Bold, Italic, "
+                    + "Underline, StrikeOut, ScaleX, ScaleY, Spacing, Angle, BorderStyle, Outline, Shadow, Alignment, "
+                    + "MarginL, MarginR, MarginV, Encoding\n"
+                    + "Style: Default,Arial,18,&H00FFFFFF,&H000000FF,&H00000000,&H00000000,0,0,0,0,100,100,0,0,1,1,1,2,10,10,10,1\n\n"
+                    + "[Events]\n"
+                    + "Format: Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text\n");
+        }
+
+        @Override
+        public void writeCue(Writer out, SubtitleCue cue) throws IOException {
+            // Braces start override tags and a newline would end the event, so both are escaped
+            String text = cue.getText().replace("{", "\\{").replace("}", "\\}").replace("\n", "\\N");
+            out.write("Dialogue: 0," + assTimestamp(cue.getStartMs()) + "," + assTimestamp(cue.getEndMs())
+                    + ",Default,,0,0,0,," + text + "\n");
+        }
+    },
+
+    TTML("ttml", "application/ttml+xml") {
+        @Override
+        public void writeHeader(Writer out) throws IOException {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<tt xmlns=\"http://www.w3.org/ns/ttml\" xml:lang=\"\">\n"
+                    + "  <body>\n"
+                    + "    <div>\n");
+        }
+
+        @Override
+        public void writeCue(Writer out, SubtitleCue cue) throws IOException {
+            out.write("      <p begin=\"" + SrtUtils.formatVttTimestamp(cue.getStartMs())
+                    + "\" end=\"" + SrtUtils.formatVttTimestamp(cue.getEndMs()) + "\">"
+                    + escapeMarkup(cue.getText()).replace("\n", "<br/>") + "</p>\n");
+        }
+
+        @Override
+        public void writeFooter(Writer out) throws IOException {
+            out.write("    </div>\n"
+                    + "  </body>\n"
+                    + "</tt>\n");
+        }
+    };
+
+    private final String extension;
+    private final String mediaType;
+
+    SubtitleFormat(String extension, String mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void writeHeader(Writer out) throws IOException {
+    }
+
+    public abstract void writeCue(Writer out, SubtitleCue cue) throws IOException;
+
+    public void writeFooter(Writer out) throws IOException {
+    }
+
+    public static Optional<SubtitleFormat> fromExtension(String extension) {
+        String wanted = extension.toLowerCase(Locale.ROOT);
+        for (SubtitleFormat format : values()) {
+            if (format.extension.equals(wanted)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String escapeMarkup(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    // ASS times are H:MM:SS.cc
+    private static String assTimestamp(long millis) {
+        long centis = millis / 10;
+        StringBuilder timestamp = new StringBuilder(11).append(centis / 360_000).append(':');
+        SrtUtils.pad(timestamp, (centis / 6000) % 60, 2).append(':');
+        SrtUtils.pad(timestamp, (centis / 100) % 60, 2).append('.');
+        return SrtUtils.pad(timestamp, centis % 100, 2).toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Compact storage format for transcript segments: a version byte, then the deflated cue list with
+// every number written as a varint and start times as deltas from the previous cue. Plain text
+// and SRT are both derived from it, so a transcript is stored once instead of twice.
+public final class TranscriptCodec {
+
+    private static final int VERSION = 1;
+
+    private TranscriptCodec() {
+    }
+
+    public static byte[] encode(List<SubtitleCue> cues, int compressionLevel) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(VERSION);
+        Deflater deflater = new Deflater(compressionLevel);
+        try (OutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            writeVarint(out, cues.size());
+            long previousStart = 0;
+            for (SubtitleCue cue : cues) {
+                byte[] text = cue.getText().getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, cue.getStartMs() - previousStart);
+                writeVarint(out, Math.max(0, cue.getEndMs() - cue.getStartMs()));
+                writeVarint(out, text.length);
+                out.write(text);
+                previousStart = cue.getStartMs();
+            }
+        } catch (IOException e) {
+            // Only in-memory streams are involved
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    public interface CueSink {
+        void accept(SubtitleCue cue) throws IOException;
+    }
+
+    public static List<SubtitleCue> decode(byte[] encoded) {
+        List<SubtitleCue> cues = new ArrayList<>();
+        try {
+            decode(encoded, cues::add);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt transcript segments: " + e.getMessage(), e);
+        }
+        return cues;
+    }
+
+    // Hands the cues to the sink one at a time as they are inflated, without building the list.
+    public static void decode(byte[] encoded, CueSink sink) throws IOException {
+        if (encoded.length == 0 || encoded[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported transcript encoding version");
+        }
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(encoded, 1, encoded.length - 1)))) {
+            long count = readVarint(in);
+            long start = 0;
+            for (int i = 0; i < count; i++) {
+                start += readVarint(in);
+                long duration = readVarint(in);
+                byte[] text = new byte[(int) readVarint(in)];
+                in.readFully(text);
+                sink.accept(new SubtitleCue(i + 1, start, start + duration, new String(text, StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
+    // Unsigned LEB128; start deltas are never negative because cues are ordered by start time
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        long v = Math.max(0, value);
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+}
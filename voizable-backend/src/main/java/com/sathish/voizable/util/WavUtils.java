@@ -0,0 +1,39 @@
+package com.sathish.voizable.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// The 16 kHz mono signed 16-bit little-endian PCM that FFmpegService.openPcmPipe produces and the
+// live caption endpoint accepts, and the WAV wrapper the AI service expects around it.
+public final class WavUtils {
+
+    public static final int SAMPLE_RATE = 16000;
+    public static final int BYTES_PER_SAMPLE = 2;
+    public static final int BYTES_PER_SECOND = SAMPLE_RATE * BYTES_PER_SAMPLE;
+
+    private WavUtils() {
+    }
+
+    public static byte[] toWav(byte[] pcm) {
+        ByteBuffer wav = ByteBuffer.allocate(44 + pcm.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + pcm.length).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16)
+                .putShort((short) 1)                        // PCM
+                .putShort((short) 1)                        // mono
+                .putInt(SAMPLE_RATE)
+                .putInt(BYTES_PER_SECOND)
+                .putShort((short) BYTES_PER_SAMPLE)         // block align
+                .putShort((short) (BYTES_PER_SAMPLE * 8));  // bits per sample
+        wav.put("data".getBytes()).putInt(pcm.length).put(pcm);
+        return wav.array();
+    }
+
+    public static long toMillis(long pcmBytes) {
+        return pcmBytes * 1000 / BYTES_PER_SECOND;
+    }
+
+    public static long toBytes(long millis) {
+        long bytes = millis * BYTES_PER_SECOND / 1000;
+        return bytes - (bytes % BYTES_PER_SAMPLE);
+    }
+}
@@ -0,0 +1,267 @@
+package com.sathish.voizable.loadtest;
+
+import com.sathish.voizable.VoizableBackendApplication;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Offline end-to-end load test. Starts the application on a random port with an in-memory database,
+// a stub AI service and a shell script standing in for FFmpeg, then drives /api/audio/transcribe and
+// /api/captions/generate with concurrent clients and reports throughput and latency percentiles.
+//
+// Run with: mvn -Pperf test-compile exec:exec -Dperf.main=com.sathish.voizable.loadtest.LoadTestHarness
+//               -Dperf.args="--clients=8 --requests=100 --upload-kb=1024 --ai-delay-ms=200"
+// The fake FFmpeg needs a POSIX shell.
+public class LoadTestHarness {
+
+    private static final Pattern JOB_ID = Pattern.compile("\"jobId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern STATUS = Pattern.compile("\"status\"\\s*:\\s*\"([A-Z]+)\"");
+
+    private static final String STUB_RESPONSE = "{\"plain_text\":\"Hello from the stub transcription service.\","
+            + "\"srt_content\":\"1\\n00:00:00,000 --> 00:00:02,000\\nHello from the stub\\n\\n"
+            + "2\\n00:00:02,000 --> 00:00:04,000\\ntranscription service.\\n\\n\"}";
+
+    // Copies its input to the output (or stdout for pipes) and reports progress when asked to
+    private static final String FAKE_FFMPEG = """
+            #!/bin/sh
+            in=""; out=""; prev=""; progress=0
+            for arg in "$@"; do
+              if [ "$prev" = "-i" ] && [ -z "$in" ]; then in="$arg"; fi
+              if [ "$arg" = "-progress" ]; then progress=1; fi
+              prev="$arg"; out="$arg"
+            done
+            echo "  Duration: 00:00:10.00, start: 0.000000, bitrate: 128 kb/s" >&2
+            sleep %s
+            case "$in" in pipe:*|-) in="/dev/stdin" ;; esac
+            if [ "$out" = "pipe:1" ] || [ "$out" = "-" ]; then
+              cat "$in"
+            else
+              cat "$in" > "$out"
+            fi
+            if [ "$progress" = 1 ]; then
+              printf 'out_time_ms=10000000\\nfps=240.0\\nspeed=4.0x\\nprogress=end\\n'
+            fi
+            """;
+
+    private record Result(long latencyNanos, boolean ok) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // DevTools would relaunch the application in a restart class loader and run main twice
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        int clients = intArg(args, "clients", 8);
+        int requests = intArg(args, "requests", 50);
+        int uploadKb = intArg(args, "upload-kb", 1024);
+        int aiDelayMs = intArg(args, "ai-delay-ms", 200);
+        int ffmpegDelayMs = intArg(args, "ffmpeg-delay-ms", 100);
+        String flows = stringArg(args, "flows", "transcribe,captions");
+
+        Path workDir = Files.createTempDirectory("voizable-loadtest");
+        HttpServer aiStub = startAiStub(aiDelayMs);
+        ConfigurableApplicationContext app = null;
+        try {
+            Path ffmpeg = writeFakeFfmpeg(workDir, ffmpegDelayMs);
+            app = new SpringApplicationBuilder(VoizableBackendApplication.class)
+                    .profiles("loadtest")
+                    .run("--server.port=0",
+                            "--ffmpeg.path=" + ffmpeg,
+                            "--uploads.dir=" + workDir.resolve("uploads"),
+                            "--ai.service.transcription.url=http://localhost:" + aiStub.getAddress().getPort() + "/transcribe");
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+
+            byte[] upload = new byte[uploadKb * 1024];
+            new Random(42).nextBytes(upload);
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            System.out.printf("Load test: %d clients, %d requests per flow, %d KB uploads, AI delay %d ms, FFmpeg delay %d ms%n",
+                    clients, requests, uploadKb, aiDelayMs, ffmpegDelayMs);
+            if (flows.contains("transcribe")) {
+                run("POST /api/audio/transcribe", clients, requests,
+                        () -> transcribe(client, baseUrl, upload));
+            }
+            if (flows.contains("captions")) {
+                run("POST /api/captions/generate (until COMPLETED)", clients, requests,
+                        () -> caption(client, baseUrl, upload));
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            aiStub.stop(0);
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    private static boolean transcribe(HttpClient client, String baseUrl, byte[] upload) throws Exception {
+        HttpResponse<String> response = client.send(multipart(baseUrl + "/api/audio/transcribe", upload, ""),
+                HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 201;
+    }
+
+    // Submits a job and polls its status until it finishes, so the latency covers the whole pipeline.
+    private static boolean caption(HttpClient client, String baseUrl, byte[] upload) throws Exception {
+        HttpResponse<String> submitted;
+        while (true) {
+            submitted = client.send(multipart(baseUrl + "/api/captions/generate", upload, "?outputMode=soft"),
+                    HttpResponse.BodyHandlers.ofString());
+            if (submitted.statusCode() != 429) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        Matcher jobId = JOB_ID.matcher(submitted.body());
+        if (submitted.statusCode() != 202 || !jobId.find()) {
+            return false;
+        }
+        HttpRequest poll = HttpRequest.newBuilder(URI.create(baseUrl + "/api/captions/status/" + jobId.group(1))).build();
+        while (true) {
+            Matcher status = STATUS.matcher(client.send(poll, HttpResponse.BodyHandlers.ofString()).body());
+            if (status.find() && !status.group(1).equals("PENDING") && !status.group(1).equals("PROCESSING")) {
+                return status.group(1).equals("COMPLETED");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private interface Call {
+        boolean call() throws Exception;
+    }
+
+    private static void run(String name, int clients, int requests, Call call) throws Exception {
+        // Warm up the JIT and connection pools before measuring
+        for (int i = 0; i < Math.min(clients, requests); i++) {
+            call.call();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        AtomicInteger remaining = new AtomicInteger(requests);
+        List<Result> results = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            workers.add(pool.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    long callStart = System.nanoTime();
+                    boolean ok;
+                    try {
+                        ok = call.call();
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    results.add(new Result(System.nanoTime() - callStart, ok));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        pool.shutdown();
+        report(name, results, elapsedNanos);
+    }
+
+    private static void report(String name, List<Result> results, long elapsedNanos) {
+        long[] latencies = results.stream().mapToLong(Result::latencyNanos).sorted().toArray();
+        long failures = results.stream().filter(result -> !result.ok()).count();
+        double seconds = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.println(name);
+        System.out.printf("  requests:   %d (%d failed)%n", latencies.length, failures);
+        System.out.printf("  throughput: %.1f req/s over %.1f s%n", latencies.length / seconds, seconds);
+        System.out.printf("  latency:    p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static HttpRequest multipart(String url, byte[] content, String query) {
+        String boundary = "----voizable" + UUID.randomUUID();
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"clip.mp4\"\r\n"
+                + "Content-Type: video/mp4\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        return HttpRequest.newBuilder(URI.create(url + query))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, content, tail)))
+                .build();
+    }
+
+    private static HttpServer startAiStub(int delayMs) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/transcribe", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] response = STUB_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static Path writeFakeFfmpeg(Path workDir, int delayMs) throws IOException {
+        Path script = workDir.resolve("fake-ffmpeg.sh");
+        Files.writeString(script, FAKE_FFMPEG.formatted(String.format(Locale.ROOT, "%.3f", delayMs / 1000.0)));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return script;
+    }
+
+    private static int intArg(String[] args, String name, int defaultValue) {
+        return Integer.parseInt(stringArg(args, name, String.valueOf(defaultValue)));
+    }
+
+    private static String stringArg(String[] args, String name, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith("--" + name + "=")) {
+                return arg.substring(name.length() + 3);
+            }
+        }
+        return defaultValue;
+    }
+}
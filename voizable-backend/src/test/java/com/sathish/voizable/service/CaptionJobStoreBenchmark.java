@@ -0,0 +1,96 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.model.CaptionJob;
+import com.sathish.voizable.repository.CaptionJobRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Job state transitions and status reads through the in-memory job store, with the repository
+// replaced by a no-op so only the store's own cost is measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptionJobStoreBenchmark {
+
+    private CaptionJobStore store;
+    private String activeJobId;
+
+    @Setup
+    public void setUp() {
+        store = new CaptionJobStore();
+        CaptionJobQueue queue = new CaptionJobQueue();
+        ReflectionTestUtils.setField(store, "captionJobRepository", noOpRepository());
+        ReflectionTestUtils.setField(store, "captionJobQueue", queue);
+        ReflectionTestUtils.setField(store, "maxEntries", 1000);
+        ReflectionTestUtils.setField(store, "terminalTtlSeconds", 600L);
+        activeJobId = store.create(newJob()).getId();
+        // Running jobs are served from memory only while this node owns them
+        queue.track(activeJobId);
+        store.markProcessing(activeJobId, queue.getNodeId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<CaptionJob> statusRead() {
+        return store.find(activeJobId);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void progressUpdate() {
+        store.updateProgress(activeJobId, 42.0, 30L, 2.5, false);
+    }
+
+    @Benchmark
+    public void fullLifecycle() {
+        String jobId = store.create(newJob()).getId();
+        store.markProcessing(jobId, "benchmark-node");
+        store.updateProgress(jobId, 50.0, 10L, 2.0, false);
+        store.markCompleted(jobId, "captioned_" + jobId + ".mp4", null, "benchmark-node");
+    }
+
+    private static CaptionJob newJob() {
+        CaptionJob job = new CaptionJob();
+        job.setOriginalFileName("clip.mp4");
+        job.setFontStyle("poppins");
+        job.setOutputMode(CaptionJob.OutputMode.BURN);
+        return job;
+    }
+
+    private static CaptionJobRepository noOpRepository() {
+        return (CaptionJobRepository) Proxy.newProxyInstance(CaptionJobRepository.class.getClassLoader(),
+                new Class<?>[]{CaptionJobRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        CaptionJob job = (CaptionJob) args[0];
+                        if (job.getId() == null) {
+                            job.setId(UUID.randomUUID().toString());
+                            job.setStatus(CaptionJob.Status.PENDING);
+                        }
+                        yield job;
+                    }
+                    case "findById" -> Optional.empty();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "NoOpCaptionJobRepository";
+                    default -> method.getReturnType() == int.class ? 1 : null;
+                });
+    }
+}
@@ -0,0 +1,90 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.config.WorkerThreads;
+import com.sathish.voizable.dto.SubtitleCue;
+import com.sathish.voizable.dto.TranscriptionResponseDTO;
+import com.sathish.voizable.util.SrtUtils;
+import com.sathish.voizable.util.WavUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChunkedTranscriptionEngineTest {
+
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    private ChunkedTranscriptionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        AiServiceClient stub = new AiServiceClient() {
+            @Override
+            public CompletableFuture<TranscriptionResponseDTO> transcribeAsync(Resource audio) {
+                TranscriptionResponseDTO response = new TranscriptionResponseDTO();
+                response.setSrtContent(responses.getOrDefault(audio.getFilename(), ""));
+                return CompletableFuture.completedFuture(response);
+            }
+        };
+        engine = new ChunkedTranscriptionEngine();
+        ReflectionTestUtils.setField(engine, "aiServiceClient", stub);
+        ReflectionTestUtils.setField(engine, "workerThreads", new WorkerThreads());
+        ReflectionTestUtils.setField(engine, "windowSeconds", 2);
+        ReflectionTestUtils.setField(engine, "overlapSeconds", 1);
+        ReflectionTestUtils.setField(engine, "silenceSearchSeconds", 1);
+        ReflectionTestUtils.setField(engine, "parallelism", 2);
+        ReflectionTestUtils.invokeMethod(engine, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(engine, "shutdown");
+    }
+
+    @Test
+    void mergesWindowsDroppingUnownedAndRepeatedCuesAndRenumbers() throws Exception {
+        // Silence everywhere, so each 2 s window is cut at the first quiet frame of its search
+        // region: 1 s in, plus half a 20 ms frame. 3 s of audio makes windows at 0 and 1010 ms.
+        byte[] pcm = new byte[3 * WavUtils.BYTES_PER_SECOND];
+        responses.put("chunk-0.wav", SrtUtils.format(List.of(
+                new SubtitleCue(1, 0, 500, "Hello there."),
+                new SubtitleCue(2, 900, 1500, "General Kenobi"),
+                // Starts past the cut, so the next window owns it
+                new SubtitleCue(3, 1200, 1800, "You are a bold one."))));
+        responses.put("chunk-1010.wav", SrtUtils.format(List.of(
+                // The cue straddling the seam, transcribed again by the overlapping window
+                new SubtitleCue(1, 0, 490, "general kenobi!"),
+                new SubtitleCue(2, 190, 800, "You are a bold one."))));
+
+        TranscriptionResponseDTO response = engine.transcribe(new ByteArrayInputStream(pcm));
+
+        List<SubtitleCue> cues = SrtUtils.parse(response.getSrtContent());
+        assertEquals(3, cues.size());
+        assertEquals(List.of(1, 2, 3), cues.stream().map(SubtitleCue::getIndex).toList());
+        assertEquals(List.of(0L, 900L, 1200L), cues.stream().map(SubtitleCue::getStartMs).toList());
+        assertEquals(1810, cues.get(2).getEndMs());
+        assertEquals("You are a bold one.", cues.get(2).getText());
+        assertEquals("Hello there. General Kenobi You are a bold one.", response.getPlainText());
+    }
+
+    @Test
+    void shortInputIsOneWindowOwningEverything() throws Exception {
+        byte[] pcm = new byte[WavUtils.BYTES_PER_SECOND / 2];
+        responses.put("chunk-0.wav", SrtUtils.format(List.of(new SubtitleCue(7, 100, 400, "Hi"))));
+
+        TranscriptionResponseDTO response = engine.transcribe(new ByteArrayInputStream(pcm));
+
+        List<SubtitleCue> cues = SrtUtils.parse(response.getSrtContent());
+        assertEquals(1, cues.size());
+        assertEquals(1, cues.get(0).getIndex());
+        assertEquals("Hi", response.getPlainText());
+    }
+}
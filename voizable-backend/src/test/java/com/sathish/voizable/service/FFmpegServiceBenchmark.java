@@ -0,0 +1,72 @@
+package com.sathish.voizable.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Subtitle filter construction and the handling of FFmpeg's stderr log and -progress output.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FFmpegServiceBenchmark {
+
+    private final File srtFile = new File("C:/Users/s/voizable/voizable-backend/uploads/0b9f1d2e.srt");
+    private final File fontFile = new File("C:/Users/s/AppData/Local/Temp/font-123456.ttf");
+
+    private byte[] ffmpegLog;
+    private String[] progressLines;
+
+    @Setup
+    public void setUp() {
+        // Roughly what FFmpeg writes to stderr while encoding a ten minute video
+        StringBuilder log = new StringBuilder("  Duration: 00:10:00.00, start: 0.000000, bitrate: 1205 kb/s\n");
+        for (int i = 0; i < 5_000; i++) {
+            log.append("frame=").append(i * 3).append(" fps= 96 q=28.0 size=    1024kB time=00:00:")
+                    .append(String.format("%02d", i % 60)).append(".00 bitrate= 838.9kbits/s speed=3.2x\n");
+        }
+        ffmpegLog = log.toString().getBytes(StandardCharsets.UTF_8);
+
+        progressLines = new String[]{
+                "frame=1200", "fps=96.0", "stream_0_0_q=28.0", "bitrate= 838.9kbits/s", "total_size=1048576",
+                "out_time_us=50000000", "out_time_ms=50000000", "out_time=00:00:50.000000", "dup_frames=0",
+                "drop_frames=0", "speed=3.2x", "progress=continue"
+        };
+    }
+
+    @Benchmark
+    public String buildSubtitleFilter() {
+        return FFmpegService.buildSubtitleFilter(srtFile, fontFile);
+    }
+
+    @Benchmark
+    public String gobbleLog() {
+        FFmpegService.StreamGobbler gobbler = new FFmpegService.StreamGobbler(new ByteArrayInputStream(ffmpegLog), 50);
+        gobbler.run();
+        return gobbler.getOutput();
+    }
+
+    @Benchmark
+    public void parseProgressBlock(Blackhole blackhole) {
+        FFmpegService.ProgressParser parser = new FFmpegService.ProgressParser(blackhole::consume);
+        parser.onLogLine("  Duration: 00:10:00.00, start: 0.000000, bitrate: 1205 kb/s");
+        for (String line : progressLines) {
+            parser.onProgressLine(line);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.dto.EncodeProgress;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FFmpegServiceTest {
+
+    @Test
+    void progressParserReportsEachProgressBlock() {
+        List<EncodeProgress> reports = new ArrayList<>();
+        FFmpegService.ProgressParser parser = new FFmpegService.ProgressParser(reports::add);
+
+        parser.onLogLine("Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'clip.mp4':");
+        parser.onLogLine("  Duration: 00:01:02.50, start: 0.000000, bitrate: 1205 kb/s");
+        // Only the first input's duration counts
+        parser.onLogLine("  Duration: 00:00:05.00, start: 0.000000, bitrate: 64 kb/s");
+        for (String line : List.of("frame=750", "fps=29.97", "out_time_ms=31250000", "speed=1.5x", "progress=continue")) {
+            parser.onProgressLine(line);
+        }
+
+        assertEquals(1, reports.size());
+        EncodeProgress progress = reports.get(0);
+        assertEquals(31_250, progress.getOutTimeMs());
+        assertEquals(62_500, progress.getDurationMs());
+        assertEquals(29.97, progress.getFps(), 1e-9);
+        assertEquals(1.5, progress.getSpeed(), 1e-9);
+        assertEquals(50.0, progress.getPercent(), 1e-9);
+        assertEquals(21, progress.getEtaSeconds());
+    }
+
+    @Test
+    void progressParserSkipsUnavailableValuesAndCompletesAtEnd() {
+        List<EncodeProgress> reports = new ArrayList<>();
+        FFmpegService.ProgressParser parser = new FFmpegService.ProgressParser(reports::add);
+
+        for (String line : List.of("out_time_ms=N/A", "speed=N/A", "not a key value line", "progress=continue")) {
+            parser.onProgressLine(line);
+        }
+        assertEquals(0, reports.get(0).getOutTimeMs());
+        assertNull(reports.get(0).getPercent());
+
+        parser.onLogLine("  Duration: 00:00:10.00, start: 0.000000");
+        parser.onProgressLine("out_time_ms=9960000");
+        parser.onProgressLine("progress=end");
+
+        EncodeProgress last = reports.get(reports.size() - 1);
+        assertEquals(10_000, last.getOutTimeMs());
+        assertEquals(100.0, last.getPercent(), 1e-9);
+    }
+}
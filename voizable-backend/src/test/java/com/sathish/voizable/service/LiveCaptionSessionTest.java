@@ -0,0 +1,130 @@
+package com.sathish.voizable.service;
+
+import com.sathish.voizable.dto.SubtitleCue;
+import com.sathish.voizable.dto.TranscriptionResponseDTO;
+import com.sathish.voizable.util.SrtUtils;
+import com.sathish.voizable.util.WavUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiveCaptionSessionTest {
+
+    private final List<Map<String, Object>> events = new ArrayList<>();
+    private final Deque<List<SubtitleCue>> responses = new ArrayDeque<>();
+    private final List<Long> windowMillis = new ArrayList<>();
+    private boolean sinkClosed;
+
+    private LiveCaptionSession newSession(long windowMs, long stepMs, long finalizeLagMs) {
+        LiveCaptionSession.EventSink sink = new LiveCaptionSession.EventSink() {
+            @Override
+            public void send(Map<String, Object> event) {
+                events.add(event);
+            }
+
+            @Override
+            public void close() {
+                sinkClosed = true;
+            }
+        };
+        return new LiveCaptionSession("test", sink, this::transcribe, (int) WavUtils.toBytes(windowMs),
+                WavUtils.toBytes(stepMs), finalizeLagMs);
+    }
+
+    // Answers synchronously with the next queued window transcript
+    private CompletableFuture<TranscriptionResponseDTO> transcribe(Resource wav) {
+        try {
+            windowMillis.add(WavUtils.toMillis(wav.contentLength() - 44));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        TranscriptionResponseDTO response = new TranscriptionResponseDTO();
+        response.setSrtContent(SrtUtils.format(responses.isEmpty() ? List.of() : responses.poll()));
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private static void append(LiveCaptionSession session, long millis) {
+        byte[] pcm = new byte[(int) WavUtils.toBytes(millis)];
+        session.appendPcm(pcm, 0, pcm.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> cues(Map<String, Object> event) {
+        return (List<Map<String, Object>>) event.get("cues");
+    }
+
+    @Test
+    void settledCuesBecomeFinalAndTheRestStayPartial() {
+        LiveCaptionSession session = newSession(10_000, 1000, 1500);
+        responses.add(List.of(
+                new SubtitleCue(1, 0, 400, "one"),
+                new SubtitleCue(2, 600, 1200, "two"),
+                new SubtitleCue(3, 1300, 1900, "three"),
+                // Placed past the audio it was given
+                new SubtitleCue(4, 2000, 2500, "ghost")));
+
+        append(session, 2000);
+
+        assertEquals(2, events.size());
+        assertEquals("final", events.get(0).get("type"));
+        assertEquals(List.of("c1"), cues(events.get(0)).stream().map(cue -> cue.get("cueId")).toList());
+        assertEquals("partial", events.get(1).get("type"));
+        List<Map<String, Object>> partials = cues(events.get(1));
+        assertEquals(List.of("c2", "c3"), partials.stream().map(cue -> cue.get("cueId")).toList());
+        assertEquals(600L, partials.get(0).get("startMs"));
+        assertEquals(1900L, partials.get(1).get("endMs"));
+    }
+
+    @Test
+    void stopRetranscribesFromTheLastFinalCueAndFinalizesEverything() {
+        LiveCaptionSession session = newSession(10_000, 1000, 1500);
+        responses.add(List.of(
+                new SubtitleCue(1, 0, 400, "one"),
+                new SubtitleCue(2, 600, 1200, "two")));
+        responses.add(List.of(
+                new SubtitleCue(1, 200, 800, "two"),
+                new SubtitleCue(2, 900, 1500, "three")));
+
+        append(session, 2000);
+        session.stop();
+
+        // The second window starts where the final cue ended
+        assertEquals(List.of(2000L, 1600L), windowMillis);
+        Map<String, Object> lastFinal = events.get(2);
+        assertEquals("final", lastFinal.get("type"));
+        List<Map<String, Object>> finals = cues(lastFinal);
+        assertEquals(List.of("c2", "c3"), finals.stream().map(cue -> cue.get("cueId")).toList());
+        assertEquals(600L, finals.get(0).get("startMs"));
+        assertEquals(1900L, finals.get(1).get("endMs"));
+        assertTrue(cues(events.get(3)).isEmpty());
+        assertEquals("end", events.get(4).get("type"));
+        assertEquals(3, events.get(4).get("cues"));
+        assertTrue(sinkClosed);
+        assertTrue(session.isClosed());
+    }
+
+    @Test
+    void continuousSpeechFinalizesTheFirstCueOnceTheWindowIsFull() {
+        LiveCaptionSession session = newSession(2000, 1000, 1500);
+        responses.add(List.of(
+                new SubtitleCue(1, 0, 1800, "a long sentence"),
+                new SubtitleCue(2, 1800, 2000, "still")));
+
+        append(session, 2000);
+
+        assertEquals("final", events.get(0).get("type"));
+        assertEquals("a long sentence", cues(events.get(0)).get(0).get("text"));
+        assertEquals(List.of("c2"), cues(events.get(1)).stream().map(cue -> cue.get("cueId")).toList());
+    }
+}
@@ -0,0 +1,149 @@
+package com.sathish.voizable.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MediaFileStreamerTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path tempDir;
+
+    private MediaFileStreamer streamer;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        streamer = new MediaFileStreamer();
+        ReflectionTestUtils.setField(streamer, "sendfileMinBytes", 49152L);
+        ReflectionTestUtils.setField(streamer, "immutableMaxAgeSeconds", 3600L);
+        ReflectionTestUtils.setField(streamer, "maxRanges", 4);
+        file = Files.writeString(tempDir.resolve("clip.mp4"), CONTENT).toFile();
+    }
+
+    private MockHttpServletResponse get(String range, String... headers) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/clip.mp4");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            request.addHeader(headers[i], headers[i + 1]);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        streamer.stream(file, MediaType.valueOf("video/mp4"), null, true, request, response);
+        return response;
+    }
+
+    @Test
+    void wholeFileWithoutRange() throws Exception {
+        MockHttpServletResponse response = get(null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("public, max-age=3600, immutable", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void singleRanges() throws Exception {
+        MockHttpServletResponse response = get("bytes=2-5");
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", response.getContentAsString());
+
+        MockHttpServletResponse suffix = get("bytes=-3");
+        assertEquals("bytes 7-9/10", suffix.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("789", suffix.getContentAsString());
+
+        // An end past the file is clamped to the last byte
+        MockHttpServletResponse open = get("bytes=8-100");
+        assertEquals("bytes 8-9/10", open.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("89", open.getContentAsString());
+    }
+
+    @Test
+    void multipleRangesAsMultipartByteranges() throws Exception {
+        MockHttpServletResponse response = get("bytes=0-1,6-7");
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString(StandardCharsets.US_ASCII);
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 6-7/10\r\n\r\n67"));
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesAreMerged() throws Exception {
+        MockHttpServletResponse single = get("bytes=4-5,2-4,6-6");
+        assertEquals(206, single.getStatus());
+        assertEquals("bytes 2-6/10", single.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("23456", single.getContentAsString());
+
+        MockHttpServletResponse sorted = get("bytes=8-9,0-0,1-2");
+        String body = sorted.getContentAsString(StandardCharsets.US_ASCII);
+        assertTrue(body.indexOf("bytes 0-2/10") < body.indexOf("bytes 8-9/10"));
+    }
+
+    @Test
+    void rangesAddingUpToMoreThanTheFileGetTheWholeFile() throws Exception {
+        MockHttpServletResponse response = get("bytes=0-7,2-9");
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void tooManyRangesIs416() throws Exception {
+        MockHttpServletResponse response = get("bytes=0-0,2-2,4-4,6-6,8-8");
+
+        assertEquals(416, response.getStatus());
+    }
+
+    @Test
+    void unsatisfiableRangeIs416() throws Exception {
+        for (String range : new String[]{"bytes=10-20", "bytes=5-2", "bytes=abc"}) {
+            MockHttpServletResponse response = get(range);
+
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+        }
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeFile() throws Exception {
+        MockHttpServletResponse response = get("bytes=2-5", HttpHeaders.IF_RANGE, "\"stale\"");
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void matchingEtagIs304() throws Exception {
+        String etag = get(null).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = get(null, HttpHeaders.IF_NONE_MATCH, etag);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        MockHttpServletResponse changed = get(null, HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        assertEquals(200, changed.getStatus());
+    }
+}
@@ -0,0 +1,114 @@
+package com.sathish.voizable.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sathish.voizable.exception.UploadConflictException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.file.Path;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResumableUploadStoreTest {
+
+    @TempDir
+    Path stagingDir;
+
+    private static ResumableUploadStore.Upload newUpload(long length) {
+        return new ResumableUploadStore.Upload("upload", length, "clip.mp4", "video/mp4", Path.of("upload.part"));
+    }
+
+    @Test
+    void addRangeMergesAdjacentAndOverlappingRanges() {
+        ResumableUploadStore.Upload upload = newUpload(100);
+
+        upload.addRange(10, 20);
+        upload.addRange(0, 5);
+        assertEquals(5, upload.getOffset());
+        assertEquals("0-4,10-19", upload.describeRanges());
+
+        // Touching ranges merge, so the offset moves past both
+        upload.addRange(5, 10);
+        assertEquals(20, upload.getOffset());
+        assertEquals("0-19", upload.describeRanges());
+
+        upload.addRange(30, 40);
+        upload.addRange(50, 60);
+        upload.addRange(15, 55);
+        assertEquals("0-59", upload.describeRanges());
+        assertEquals(60, upload.getReceivedBytes());
+    }
+
+    @Test
+    void addRangeIgnoresEmptyAndContainedRanges() {
+        ResumableUploadStore.Upload upload = newUpload(100);
+
+        upload.addRange(20, 20);
+        upload.addRange(30, 25);
+        assertEquals("", upload.describeRanges());
+
+        upload.addRange(20, 80);
+        upload.addRange(30, 40);
+        assertEquals("20-79", upload.describeRanges());
+        assertEquals(0, upload.getOffset());
+    }
+
+    @Test
+    void completeOnceEveryByteHasArrived() {
+        ResumableUploadStore.Upload upload = newUpload(100);
+
+        upload.addRange(50, 100);
+        assertFalse(upload.isComplete());
+        upload.addRange(0, 50);
+        assertTrue(upload.isComplete());
+        assertEquals(100, upload.getOffset());
+    }
+
+    @Test
+    void completeRefusesWhileAChunkIsStillBeingWritten() throws Exception {
+        ResumableUploadStore store = new ResumableUploadStore();
+        ReflectionTestUtils.setField(store, "stagingStore", new StagingStore());
+        ReflectionTestUtils.setField(store, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(store, "stagingDir", stagingDir.toString());
+        ReflectionTestUtils.setField(store, "maxSizeBytes", 1000L);
+        ReflectionTestUtils.setField(store, "sweepIntervalMinutes", 30L);
+        ReflectionTestUtils.invokeMethod(store, "init");
+        try {
+            ResumableUploadStore.Upload upload = store.create(100, "clip.mp4", "video/mp4");
+            store.write(upload, 0, 100, Channels.newChannel(new ByteArrayInputStream(new byte[100])));
+            assertTrue(upload.isComplete());
+
+            // A retry of the same chunk, still arriving after every byte already counts as received
+            Pipe pipe = Pipe.open();
+            FutureTask<Long> retry = new FutureTask<>(() -> store.write(upload, 0, 100, pipe.source()));
+            new Thread(retry).start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((int) ReflectionTestUtils.getField(upload, "activeWriters") == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThrows(UploadConflictException.class, () -> store.complete(upload));
+
+            pipe.sink().write(ByteBuffer.wrap(new byte[100]));
+            pipe.sink().close();
+            assertEquals(100, retry.get(5, TimeUnit.SECONDS));
+
+            StagedUpload staged = store.complete(upload);
+            assertEquals(100, staged.getSize());
+            assertThrows(UploadConflictException.class,
+                    () -> store.write(upload, 0, 10, Channels.newChannel(new ByteArrayInputStream(new byte[10]))));
+            staged.release();
+        } finally {
+            ReflectionTestUtils.invokeMethod(store, "shutdown");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.sathish.voizable.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Spooling a multipart upload to the staging directory, including the SHA-256 computed on the way.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StagingStoreBenchmark {
+
+    @Param({"1048576", "26214400"})
+    private int uploadBytes;
+
+    private Path stagingDir;
+    private StagingStore stagingStore;
+    private MockMultipartFile upload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stagingDir = Files.createTempDirectory("staging-bench");
+
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(pipelineMetrics, "meterRegistry", new SimpleMeterRegistry());
+
+        stagingStore = new StagingStore();
+        ReflectionTestUtils.setField(stagingStore, "stagingDir", stagingDir.toString());
+        ReflectionTestUtils.setField(stagingStore, "pipelineMetrics", pipelineMetrics);
+
+        byte[] content = new byte[uploadBytes];
+        new Random(42).nextBytes(content);
+        upload = new MockMultipartFile("file", "clip.mp4", "video/mp4", content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(stagingDir);
+    }
+
+    @Benchmark
+    public String stageAndRelease() throws IOException {
+        StagedUpload staged = stagingStore.stage(upload);
+        String hash = staged.getContentHash();
+        staged.release();
+        return hash;
+    }
+}
@@ -0,0 +1,52 @@
+package com.sathish.voizable.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PcmRingBufferTest {
+
+    private static byte[] bytes(int from, int count) {
+        byte[] data = new byte[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = (byte) (from + i);
+        }
+        return data;
+    }
+
+    @Test
+    void readsBackAcrossTheWrapPoint() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        ring.write(bytes(0, 6), 0, 6);
+        ring.write(bytes(6, 5), 0, 5);
+
+        assertEquals(11, ring.getPosition());
+        assertEquals(3, ring.getOldestPosition());
+        assertArrayEquals(bytes(3, 8), ring.copy(3, 11));
+        assertArrayEquals(bytes(6, 4), ring.copy(6, 10));
+    }
+
+    @Test
+    void oversizedWriteKeepsOnlyTheTail() {
+        PcmRingBuffer ring = new PcmRingBuffer(4);
+        ring.write(bytes(0, 3), 0, 3);
+        byte[] data = bytes(100, 10);
+        ring.write(data, 1, 9);
+
+        assertEquals(12, ring.getPosition());
+        assertArrayEquals(bytes(106, 4), ring.copy(8, 12));
+    }
+
+    @Test
+    void rejectsRangesOutsideTheBuffer() {
+        PcmRingBuffer ring = new PcmRingBuffer(4);
+        ring.write(bytes(0, 6), 0, 6);
+
+        assertThrows(IllegalArgumentException.class, () -> ring.copy(1, 4));
+        assertThrows(IllegalArgumentException.class, () -> ring.copy(3, 7));
+        assertThrows(IllegalArgumentException.class, () -> ring.copy(5, 4));
+        assertEquals(0, ring.copy(6, 6).length);
+    }
+}
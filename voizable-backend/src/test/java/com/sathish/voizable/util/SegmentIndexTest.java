@@ -0,0 +1,54 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentIndexTest {
+
+    private static List<String> texts(List<SubtitleCue> cues) {
+        return cues.stream().map(SubtitleCue::getText).toList();
+    }
+
+    @Test
+    void rangeReturnsCuesOverlappingTheHalfOpenInterval() {
+        SegmentIndex index = new SegmentIndex(List.of(
+                new SubtitleCue(3, 4000, 6000, "c"),
+                new SubtitleCue(1, 0, 2000, "a"),
+                new SubtitleCue(2, 2000, 4000, "b")));
+
+        assertEquals(List.of("a", "b", "c"), texts(index.page(0, 10)));
+        assertEquals(List.of("b"), texts(index.range(2000, 4000)));
+        assertEquals(List.of("a", "b"), texts(index.range(1999, 2001)));
+        assertEquals(List.of("c"), texts(index.range(5999, 10_000)));
+        assertTrue(index.range(6000, 7000).isEmpty());
+        assertEquals(6000, index.getDurationMs());
+    }
+
+    @Test
+    void rangeFindsLongCuesThatOverlapLaterOnes() {
+        // The first cue spans everything, so the cues after it cannot be skipped by start time alone
+        SegmentIndex index = new SegmentIndex(List.of(
+                new SubtitleCue(1, 0, 10_000, "long"),
+                new SubtitleCue(2, 1000, 1500, "short"),
+                new SubtitleCue(3, 8000, 9000, "late")));
+
+        assertEquals(List.of("long"), texts(index.range(5000, 6000)));
+        assertEquals(List.of("long", "late"), texts(index.range(8500, 20_000)));
+        assertEquals(10_000, index.getDurationMs());
+    }
+
+    @Test
+    void emptyIndex() {
+        SegmentIndex index = new SegmentIndex(List.of());
+
+        assertEquals(0, index.size());
+        assertEquals(0, index.getDurationMs());
+        assertTrue(index.range(0, 1000).isEmpty());
+        assertTrue(index.page(5, 10).isEmpty());
+    }
+}
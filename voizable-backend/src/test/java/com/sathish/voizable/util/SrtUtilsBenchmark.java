@@ -0,0 +1,62 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parsing and rendering of transcripts the size of a short clip and of a feature-length video.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SrtUtilsBenchmark {
+
+    @Param({"50", "2000"})
+    private int cueCount;
+
+    private String srt;
+    private List<SubtitleCue> cues;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < cueCount; i++) {
+            long start = i * 3_000L;
+            builder.append(i + 1).append('\n')
+                    .append(SrtUtils.formatTimestamp(start)).append(" --> ").append(SrtUtils.formatTimestamp(start + 2_500)).append('\n')
+                    .append("Caption line number ").append(i + 1).append(" with a little more text\n")
+                    .append('\n');
+        }
+        srt = builder.toString();
+        cues = SrtUtils.parse(srt);
+    }
+
+    @Benchmark
+    public List<SubtitleCue> parse() {
+        return SrtUtils.parse(srt);
+    }
+
+    @Benchmark
+    public String format() {
+        return SrtUtils.format(cues);
+    }
+
+    @Benchmark
+    public String toWebVtt() {
+        return SrtUtils.toWebVtt(cues);
+    }
+}
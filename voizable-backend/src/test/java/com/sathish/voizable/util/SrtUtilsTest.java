@@ -0,0 +1,59 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SrtUtilsTest {
+
+    @Test
+    void parseRenumbersCuesInDocumentOrder() {
+        String srt = "7\r\n00:00:01,000 --> 00:00:02,500\r\nHello\r\nthere\r\n\r\n"
+                + "3\n00:00:03.5 --> 00:00:04.05\nSecond cue\n";
+
+        List<SubtitleCue> cues = SrtUtils.parse(srt);
+
+        assertEquals(2, cues.size());
+        assertEquals(1, cues.get(0).getIndex());
+        assertEquals(1000, cues.get(0).getStartMs());
+        assertEquals(2500, cues.get(0).getEndMs());
+        assertEquals("Hello\nthere", cues.get(0).getText());
+        assertEquals(2, cues.get(1).getIndex());
+        // "5" is 500 ms and "05" is 50 ms
+        assertEquals(3500, cues.get(1).getStartMs());
+        assertEquals(4050, cues.get(1).getEndMs());
+    }
+
+    @Test
+    void parseSkipsBlankAndMissingContent() {
+        assertTrue(SrtUtils.parse(null).isEmpty());
+        assertTrue(SrtUtils.parse("  \n").isEmpty());
+        assertTrue(SrtUtils.parse("1\nnot a timing line\ntext\n").isEmpty());
+    }
+
+    @Test
+    void formatRoundTripsThroughParse() {
+        List<SubtitleCue> cues = List.of(
+                new SubtitleCue(1, 0, 999, "First"),
+                new SubtitleCue(2, 3_723_004, 3_725_000, "Over an hour in"));
+
+        String srt = SrtUtils.format(cues);
+
+        assertTrue(srt.startsWith("1\n00:00:00,000 --> 00:00:00,999\nFirst\n\n"));
+        assertTrue(srt.contains("2\n01:02:03,004 --> 01:02:05,000\nOver an hour in\n\n"));
+        List<SubtitleCue> parsed = SrtUtils.parse(srt);
+        assertEquals(3_723_004, parsed.get(1).getStartMs());
+        assertEquals("Over an hour in", parsed.get(1).getText());
+    }
+
+    @Test
+    void toWebVttUsesDotSeparators() {
+        String vtt = SrtUtils.toWebVtt(List.of(new SubtitleCue(1, 1500, 2000, "Hi")));
+
+        assertEquals("WEBVTT\n\n1\n00:00:01.500 --> 00:00:02.000\nHi\n\n", vtt);
+    }
+}
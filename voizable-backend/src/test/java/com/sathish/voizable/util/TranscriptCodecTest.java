@@ -0,0 +1,63 @@
+package com.sathish.voizable.util;
+
+import com.sathish.voizable.dto.SubtitleCue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranscriptCodecTest {
+
+    @Test
+    void roundTripKeepsTimesAndText() {
+        List<SubtitleCue> cues = List.of(
+                new SubtitleCue(1, 0, 1200, "Hello"),
+                new SubtitleCue(2, 1200, 1200, ""),
+                new SubtitleCue(3, 86_400_000L, 86_403_500L, "Ünïcödé and emoji 😀\nsecond line"));
+
+        List<SubtitleCue> decoded = TranscriptCodec.decode(TranscriptCodec.encode(cues, Deflater.BEST_SPEED));
+
+        assertEquals(cues.size(), decoded.size());
+        for (int i = 0; i < cues.size(); i++) {
+            assertEquals(i + 1, decoded.get(i).getIndex());
+            assertEquals(cues.get(i).getStartMs(), decoded.get(i).getStartMs());
+            assertEquals(cues.get(i).getEndMs(), decoded.get(i).getEndMs());
+            assertEquals(cues.get(i).getText(), decoded.get(i).getText());
+        }
+    }
+
+    @Test
+    void roundTripOfEmptyTranscript() {
+        assertTrue(TranscriptCodec.decode(TranscriptCodec.encode(List.of(), Deflater.DEFAULT_COMPRESSION)).isEmpty());
+    }
+
+    @Test
+    void streamingDecodeMatchesListDecode() throws Exception {
+        List<SubtitleCue> cues = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            cues.add(new SubtitleCue(i + 1, i * 2000L, i * 2000L + 1500, "cue " + i));
+        }
+        byte[] encoded = TranscriptCodec.encode(cues, Deflater.BEST_COMPRESSION);
+
+        List<SubtitleCue> streamed = new ArrayList<>();
+        TranscriptCodec.decode(encoded, streamed::add);
+
+        assertEquals(500, streamed.size());
+        assertEquals(998_000, streamed.get(499).getStartMs());
+        assertEquals("cue 499", streamed.get(499).getText());
+    }
+
+    @Test
+    void rejectsUnknownVersionAndCorruptData() {
+        assertThrows(IllegalArgumentException.class, () -> TranscriptCodec.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> TranscriptCodec.decode(new byte[]{99, 1, 2}));
+        byte[] encoded = TranscriptCodec.encode(List.of(new SubtitleCue(1, 0, 10, "truncated")), Deflater.BEST_SPEED);
+        byte[] truncated = java.util.Arrays.copyOf(encoded, encoded.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> TranscriptCodec.decode(truncated));
+    }
+}